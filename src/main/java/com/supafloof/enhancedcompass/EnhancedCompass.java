@@ -15,17 +15,77 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * EnhancedCompass Plugin
@@ -48,16 +108,14 @@ import java.util.stream.Collectors;
  *   <li>Real-time boss bar distance display (updates every 0.5 seconds)</li>
  *   <li>Complete tab completion for all commands and structure types</li>
  *   <li>Complete tab completion for all biome types</li>
- *   <li>Player data persistence - targets saved to disk when set and on logout</li>
+ *   <li>Player data persistence - targets saved to disk when set and on logout, restored on join</li>
  *   <li>Hot-reload capability for configuration changes</li>
  * </ul>
  * 
  * <p><b>Note on Data Persistence:</b></p>
- * Player targets ARE saved to disk (in playerdata/*.yml files) when set and when players quit.
- * However, targets are NOT automatically restored when players rejoin the server. The 
- * loadPlayerTarget() method exists and is fully implemented, but there is no PlayerJoinEvent
- * handler to call it. To enable automatic target restoration on join, a join event handler
- * would need to be added. See loadPlayerTarget() JavaDoc for implementation details.
+ * Player targets are saved to disk (in playerdata/*.yml files) when set and when players quit.
+ * They are read back during AsyncPlayerPreLoginEvent (off the main thread) and applied when
+ * the player joins. See onAsyncPlayerPreLogin() and onPlayerJoin().
  * 
  * <p><b>Technical Architecture:</b></p>
  * <ul>
@@ -66,6 +124,7 @@ import java.util.stream.Collectors;
  *   <li>Uses Bukkit Registry API for accurate biome lookups</li>
  *   <li>Asynchronous boss bar updates via scheduled tasks</li>
  *   <li>Asynchronous biome searches to prevent server lag</li>
+ *   <li>Asynchronous structure search pipeline with per-player in-progress tracking</li>
  *   <li>YAML-based player data persistence</li>
  *   <li>Modular design with inner classes for organization</li>
  * </ul>
@@ -79,7 +138,9 @@ import java.util.stream.Collectors;
  *   <li>Distance calculations are 3D Euclidean distance in blocks</li>
  *   <li>Cross-dimension targets show "Not in same dimension" warning in boss bar</li>
  *   <li>Biome searches run asynchronously to avoid blocking the main server thread</li>
- *   <li>Structure searches run synchronously (Bukkit's locateNearestStructure is already optimized)</li>
+ *   <li>Structure searches run through StructureSearchPipeline - on worker threads by default,
+ *       or one lookup at a time on the main thread - and results are applied back on the main thread</li>
+ *   <li>Each player can only have one search (structure or biome) in progress at a time</li>
  * </ul>
  * 
  * @author SupaFloof Games, LLC
@@ -88,37 +149,75 @@ import java.util.stream.Collectors;
 public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabCompleter, Listener {
     
     /**
-     * Maps each player's UUID to their current compass target.
-     * This stores both the target type name (structure or biome) and the exact location coordinates.
+     * Maps each player's UUID to their compass state (target, boss bar and last rendered title).
      * 
      * <p><b>Lifecycle:</b></p>
      * <ul>
-     *   <li>Entries added when player successfully locates a structure/biome</li>
+     *   <li>Entries added when player successfully locates a structure/biome or first gets a boss bar</li>
      *   <li>Entries persist in memory until server shutdown or plugin disable</li>
-     *   <li>Entries are NOT automatically restored on player join (see loadPlayerTarget())</li>
+     *   <li>Entries are restored from disk on player join if missing (see onPlayerJoin())</li>
      *   <li>Entries are NOT removed when player quits (allows boss bar cleanup to still work)</li>
      * </ul>
      * 
+     * <p><b>Thread Safety:</b></p>
+     * A ConcurrentHashMap of PlayerState records with volatile fields, so the update loop
+     * reads without locking and search completions can publish a target from any thread.
+     * 
      * Key: Player UUID
-     * Value: CompassTarget object containing target type and location
+     * Value: PlayerState record for that player
      */
-    private Map<UUID, CompassTarget> playerTargets = new HashMap<>();
+    private final ConcurrentHashMap<UUID, PlayerState> playerStates = new ConcurrentHashMap<>();
     
     /**
-     * Maps each player's UUID to their active boss bar instance.
-     * Boss bars are created when a player holds a compass with a target set,
-     * and removed when they stop holding the compass.
-     * Key: Player UUID
-     * Value: BossBar instance showing structure name and distance
+     * Configuration manager instance that handles all config.yml operations.
+     * Provides methods to check enabled structures, enabled biomes, search radius, and world blacklists.
+     * Initialized in onEnable() and replaced as a whole on reload (see reloadConfigAsync()),
+     * so code that needs consistent values across threads reads this field once.
      */
-    private Map<UUID, BossBar> playerBossBars = new HashMap<>();
+    private volatile ConfigManager configManager;
     
     /**
-     * Configuration manager instance that handles all config.yml operations.
-     * Provides methods to check enabled structures, enabled biomes, search radius, and world blacklists.
-     * Initialized in onEnable() and recreated on reload.
+     * Number of the latest reload started (main thread only).
+     * A reload is only published if no newer one was started meanwhile.
+     */
+    private int configGeneration;
+    
+    /**
+     * Watches config.yml for config-reload.watch-file, null when disabled.
+     */
+    private ConfigFileWatcher configFileWatcher;
+    
+    /**
+     * Pipeline that runs structure searches without blocking the main server thread.
+     * Tracks which players have a search in progress and hands finished results back
+     * to the main thread, where completeStructureSearch() applies them.
+     * Created in onEnable() and shut down in onDisable().
+     */
+    private StructureSearchPipeline structureSearchPipeline;
+    
+    /**
+     * Persistent per-world index of structure locations found by earlier searches.
+     * Stored under plugins/EnhancedCompass/structure-index/ and saved periodically
+     * by structureIndexSaveTask, plus once more in onDisable().
      */
-    private ConfigManager configManager;
+    private StructureIndex structureIndex;
+    
+    /**
+     * Asynchronous task that periodically writes changed structure index files to disk.
+     */
+    private BukkitRunnable structureIndexSaveTask;
+    
+    /**
+     * Recent biome search results, reused for nearby searches of the same biome.
+     * Thread-safe: queried and filled from the async biome search task.
+     */
+    private BiomeSearchCache biomeSearchCache;
+    
+    /**
+     * Background job runner for /enhancedcompass index.
+     * Fills the structure index around a world's spawn ahead of time, resuming after restarts.
+     */
+    private StructurePreIndexer structurePreIndexer;
     
     /**
      * Scheduled task that runs every 0.5 seconds (10 ticks) to update all active boss bars.
@@ -129,7 +228,95 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
     private BukkitRunnable updateTask;
     
     /**
-     * Directory where individual player data files are stored.
+     * Event-driven set of players holding a compass.
+     * The update task only visits these players.
+     */
+    private CompassHolderTracker compassHolderTracker;
+    
+    /**
+     * Per-player boss bar refresh schedule.
+     * Holders close to their target are refreshed more often than distant ones.
+     */
+    private final BossBarRefreshWheel bossBarRefreshWheel = new BossBarRefreshWheel();
+    
+    /**
+     * Boss bars of players who quit, reused for the next players to hold a compass.
+     */
+    private final BossBarPool bossBarPool = new BossBarPool();
+    
+    /**
+     * Worker that builds boss bar titles when boss-bar.render-mode is async.
+     * Created on enable either way so the mode can be switched with /enhancedcompass reload.
+     */
+    private BossBarRenderer bossBarRenderer;
+    
+    /**
+     * Precomputed display names and boss bar title prefixes for every structure and biome.
+     * Replaced as a whole on reload; volatile because the render worker reads it.
+     */
+    private volatile DisplayNameTable displayNames;
+    
+    /**
+     * Most blocks a holder's distance may change between boss bar refreshes.
+     * Caps the refresh interval of fast-moving players (see computeRefreshInterval()).
+     */
+    private static final double MAX_BLOCKS_BETWEEN_REFRESHES = 8.0;
+    
+    /**
+     * First-argument subcommands completed for each permission tier (see completionTier()).
+     * Tier bits: 1 = enhancedcompass.reload, 2 = enhancedcompass.admin, 4 = enhancedcompass.index.
+     * Precompiled into the tab completion indexes on config load.
+     */
+    private static final List<List<String>> SUBCOMMAND_TIERS = buildSubcommandTiers();
+    
+    /**
+     * Builds SUBCOMMAND_TIERS.
+     * help, current, biome, village and anything are always completed.
+     */
+    private static List<List<String>> buildSubcommandTiers() {
+        List<List<String>> tiers = new ArrayList<>();
+        for (int tier = 0; tier < 8; tier++) {
+            List<String> subcommands = new ArrayList<>(List.of("help", "current", "biome", "village", "anything"));
+            if ((tier & 1) != 0) {
+                subcommands.add("reload");
+            }
+            if ((tier & 2) != 0) {
+                subcommands.add("stats");
+                subcommands.add("benchmark");
+            }
+            if ((tier & 4) != 0) {
+                subcommands.add("index");
+            }
+            tiers.add(List.copyOf(subcommands));
+        }
+        return List.copyOf(tiers);
+    }
+    
+    /**
+     * Boss bar title updates sent and skipped because nothing visible changed.
+     * Only touched on the main thread; shown by /enhancedcompass stats.
+     */
+    private long bossBarUpdatesSent;
+    private long bossBarUpdatesSkipped;
+    
+    /**
+     * Boss bar refreshes pushed to the next tick by boss-bar.max-updates-per-tick.
+     * Only touched on the main thread; shown by /enhancedcompass stats.
+     */
+    private long bossBarUpdatesDeferred;
+    
+    /**
+     * Reused Location the update loop reads player positions into (Entity.getLocation(Location)).
+     * Main thread only.
+     */
+    private final Location scratchLocation = new Location(null, 0, 0, 0);
+    
+    /** Refreshes run by /enhancedcompass benchmark before and during measurement */
+    private static final int BENCHMARK_WARMUP = 20000;
+    private static final int BENCHMARK_ITERATIONS = 100000;
+    
+    /**
+     * Directory where individual player data files are stored (persistence.storage: yaml).
      * Each player gets a UUID.yml file containing their last compass target.
      * 
      * <p><b>Location:</b> plugins/EnhancedCompass/playerdata/</p>
@@ -141,12 +328,49 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      *   <li>x, y, z: Coordinates as doubles</li>
      * </ul>
      * 
-     * <p><b>Note:</b> Files are saved when targets are set and on player quit,
-     * but are NOT automatically loaded on player join. The loadPlayerTarget()
-     * method exists for this purpose but is not currently wired to any event.</p>
+     * <p><b>Note:</b> With the default binary storage this folder is only read once,
+     * to migrate existing files into targets.dat.</p>
      */
     private File playerDataFolder;
     
+    /**
+     * Asynchronous access to where player compass targets are stored
+     * (targets.dat, targets.map, targets.db or per-player YAML files).
+     * The backend is chosen by persistence.storage on startup.
+     */
+    private PlayerTargetStorage playerTargetStorage;
+    
+    /**
+     * How long a login waits for its saved target before giving up (seconds).
+     * Only reached if storage is badly stuck - the player then just joins without a restored target.
+     */
+    private static final long STORAGE_LOAD_TIMEOUT_SECONDS = 5;
+    
+    /**
+     * Background task that forces playerTargetStorage to disk.
+     * Runs asynchronously every persistence.force-interval-seconds.
+     */
+    private BukkitRunnable playerTargetForceTask;
+    
+    /**
+     * Write-behind queue for player data files.
+     * savePlayerTarget() only queues the latest target per player; files are written in the
+     * background every persistence.flush-interval-seconds and once more in onDisable().
+     */
+    private PlayerTargetWriter playerTargetWriter;
+    
+    /**
+     * Targets read during AsyncPlayerPreLoginEvent, waiting for the player's join.
+     * Filled on the async login thread, drained on the main thread by onPlayerJoin().
+     */
+    private final ConcurrentHashMap<UUID, StoredTarget> preloadedTargets = new ConcurrentHashMap<>();
+    
+    /**
+     * Background task that flushes playerTargetWriter.
+     * Runs asynchronously every persistence.flush-interval-seconds.
+     */
+    private BukkitRunnable playerTargetFlushTask;
+    
     /**
      * Plugin initialization method called by Bukkit when the plugin is enabled.
      * This method sets up all necessary components in the following order:
@@ -155,7 +379,7 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      * <ol>
      *   <li>Save default config.yml from resources if it doesn't exist</li>
      *   <li>Initialize ConfigManager to load and parse configuration</li>
-     *   <li>Create playerdata directory for storing player targets</li>
+     *   <li>Open the player target store (migrating old YAML files once)</li>
      *   <li>Register command executor and tab completer for /enhancedcompass</li>
      *   <li>Register event listener for player quit events</li>
      *   <li>Start the repeating boss bar update task</li>
@@ -173,14 +397,60 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         
         // Initialize the configuration manager which will parse and validate config.yml
         // ConfigManager handles structure whitelists, biome whitelists, search radius, and world blacklists
-        configManager = new ConfigManager(this);
+        configManager = new ConfigManager(this, getConfig());
+        configManager.compileWorldSettings();
         
-        // Create the playerdata directory if it doesn't exist
-        // Individual player compass targets will be saved here as UUID.yml files
+        // Format every structure and biome name once (boss bars, commands and messages look them up)
+        displayNames = DisplayNameTable.build();
+        
+        // Create the structure search pipeline with the configured number of worker threads
+        // Worker count is fixed for the lifetime of the plugin (changing it requires a restart)
+        structureIndex = new StructureIndex(this, new File(getDataFolder(), "structure-index"));
+        structureSearchPipeline = new StructureSearchPipeline(this, structureIndex, configManager.getSearchWorkerThreads());
+        
+        // Write changed structure index files in the background every save-interval-seconds
+        structureIndexSaveTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                structureIndex.saveDirty();
+            }
+        };
+        long indexSaveTicks = configManager.getStructureIndexSaveIntervalSeconds() * 20L;
+        structureIndexSaveTask.runTaskTimerAsynchronously(this, indexSaveTicks, indexSaveTicks);
+        
+        // Create the biome search cache (limits come from the config snapshot of each search)
+        biomeSearchCache = new BiomeSearchCache();
+        
+        // Resume a pre-indexing job that was still running when the server stopped
+        structurePreIndexer = new StructurePreIndexer(this, structureIndex, new File(getDataFolder(), "structure-index/pre-index.yml"));
+        structurePreIndexer.resume();
+        
+        // Open the player target store on the storage thread (migrating old playerdata/*.yml
+        // files on first use can take a while - logins are held back until it is done)
         playerDataFolder = new File(getDataFolder(), "playerdata");
-        if (!playerDataFolder.exists()) {
-            playerDataFolder.mkdirs();
-        }
+        playerTargetStorage = new PlayerTargetStorage(this, this::openPlayerTargetStore);
+        
+        // Queue player data writes and flush them off the main thread
+        // Interval is fixed for the lifetime of the plugin (changing it requires a restart)
+        playerTargetWriter = new PlayerTargetWriter(this, playerTargetStorage);
+        playerTargetFlushTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                playerTargetWriter.flush();
+            }
+        };
+        long flushTicks = configManager.getPersistenceFlushIntervalSeconds() * 20L;
+        playerTargetFlushTask.runTaskTimerAsynchronously(this, flushTicks, flushTicks);
+        
+        // Sync the store to disk on its own, slower schedule (matters for the mapped store)
+        playerTargetForceTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                playerTargetStorage.force();
+            }
+        };
+        long forceTicks = configManager.getPersistenceForceIntervalSeconds() * 20L;
+        playerTargetForceTask.runTaskTimerAsynchronously(this, forceTicks, forceTicks);
         
         // Register this class as the handler for /enhancedcompass command
         // The command is defined in plugin.yml
@@ -194,6 +464,23 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         // Currently only listens for PlayerQuitEvent to cleanup boss bars
         getServer().getPluginManager().registerEvents(this, this);
         
+        // Track who is holding a compass from inventory events (plus a slow resync)
+        compassHolderTracker = new CompassHolderTracker(this);
+        getServer().getPluginManager().registerEvents(compassHolderTracker, this);
+        compassHolderTracker.start();
+        
+        // Worker for boss-bar.render-mode: async (idle otherwise)
+        bossBarRenderer = new BossBarRenderer(this);
+        
+        // Reload automatically when config.yml is saved (changing this requires a restart)
+        if (configManager.isConfigWatchEnabled()) {
+            try {
+                configFileWatcher = new ConfigFileWatcher(this);
+            } catch (IOException e) {
+                getLogger().warning("Failed to watch config.yml for changes: " + e.getMessage());
+            }
+        }
+        
         // Start the repeating task that updates boss bars for players holding compasses
         // This task runs every 10 ticks (0.5 seconds) indefinitely
         startUpdateTask();
@@ -214,20 +501,17 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      *   <li>Cancel the boss bar update task to stop further updates</li>
      *   <li>Hide all active boss bars from players</li>
      *   <li>Clear boss bar and target maps to release memory</li>
+     *   <li>Flush queued player data writes</li>
      *   <li>Log shutdown message</li>
      * </ol>
      * 
      * <p><b>Important - Data Persistence:</b></p>
-     * Player targets are NOT saved in this method. They are saved:
-     * <ul>
-     *   <li>Immediately when a target is set (after structure/biome search completes)</li>
-     *   <li>When each player quits (in onPlayerQuit event handler)</li>
-     * </ul>
-     * This design ensures targets persist even if the server crashes unexpectedly,
-     * since data is already on disk before shutdown occurs.
+     * Player targets are queued for saving when a target is set and when each player
+     * quits, and written in the background every few seconds. This method stops the
+     * background flush and writes everything still queued synchronously, so no target
+     * is lost on a clean shutdown. After a crash, at most one flush interval of changes is lost.
      * 
-     * <p><b>Note:</b> Although player data is saved to disk, it is NOT automatically
-     * restored when players rejoin. See loadPlayerTarget() for details.</p>
+     * <p><b>Note:</b> Saved targets are restored when players rejoin. See onPlayerJoin() for details.</p>
      */
     @Override
     public void onDisable() {
@@ -236,46 +520,97 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         if (updateTask != null && !updateTask.isCancelled()) {
             updateTask.cancel();
         }
+        if (compassHolderTracker != null) {
+            compassHolderTracker.stop();
+        }
+        if (bossBarRenderer != null) {
+            bossBarRenderer.close();
+        }
+        if (configFileWatcher != null) {
+            configFileWatcher.close();
+        }
+        
+        // Stop the search workers and drop any searches that haven't finished yet
+        // Results of in-flight searches are discarded since the plugin is going away
+        if (structureSearchPipeline != null) {
+            structureSearchPipeline.shutdown();
+        }
+        
+        // Pause the pre-indexing job and remember its progress for the next start
+        if (structurePreIndexer != null) {
+            structurePreIndexer.pause();
+        }
+        
+        // Stop the periodic index save and write anything still pending
+        // Runs synchronously so no index data is lost on shutdown
+        if (structureIndexSaveTask != null && !structureIndexSaveTask.isCancelled()) {
+            structureIndexSaveTask.cancel();
+        }
+        if (structureIndex != null) {
+            structureIndex.saveDirty();
+        }
         
         // Iterate through all active boss bars and hide them from players
         // This prevents boss bars from lingering on the client after plugin disable
-        for (Map.Entry<UUID, BossBar> entry : playerBossBars.entrySet()) {
+        for (Map.Entry<UUID, PlayerState> entry : playerStates.entrySet()) {
+            BossBar bossBar = entry.getValue().bossBar;
             Player player = Bukkit.getPlayer(entry.getKey());
             // Only attempt to hide if player is still online
-            if (player != null) {
-                player.hideBossBar(entry.getValue());
+            if (bossBar != null && player != null) {
+                player.hideBossBar(bossBar);
             }
         }
         
-        // Clear the boss bar map to release references
-        // This allows garbage collection of BossBar objects
-        playerBossBars.clear();
+        bossBarPool.clear();
+        
+        // Clear the player state map to release targets and boss bars
+        // Note: Targets are already queued for saving, so this is safe
+        playerStates.clear();
         
-        // Clear the player targets map to release references
-        // Note: Targets are already saved to disk, so this is safe
-        playerTargets.clear();
+        // Stop the background flush and write every queued target now
+        // Runs synchronously so quits during shutdown are still saved
+        if (playerTargetFlushTask != null && !playerTargetFlushTask.isCancelled()) {
+            playerTargetFlushTask.cancel();
+        }
+        if (playerTargetForceTask != null && !playerTargetForceTask.isCancelled()) {
+            playerTargetForceTask.cancel();
+        }
+        if (playerTargetWriter != null) {
+            playerTargetWriter.flush();
+        }
+        if (playerTargetStorage != null) {
+            playerTargetStorage.close();
+        }
         
         // Log shutdown message using standard Java logging (not Adventure API)
         getLogger().info("EnhancedCompass has been disabled!");
     }
     
     /**
-     * Starts a repeating asynchronous task that updates boss bars for all online players.
+     * Starts a repeating task that updates boss bars for players holding a compass.
      * This task is the core of the real-time distance display feature.
      * 
      * <p><b>Update Logic:</b></p>
      * <ol>
-     *   <li>Iterate through all online players</li>
-     *   <li>Check if player is holding a compass in main hand OR off hand</li>
-     *   <li>If holding compass AND has target set AND has permission: update boss bar</li>
-     *   <li>If not holding compass: remove boss bar if it exists</li>
+     *   <li>Iterate through the active compass holders tracked by CompassHolderTracker</li>
+     *   <li>If holder has target set AND has permission: update boss bar</li>
      * </ol>
+     * Boss bars of players who put their compass away are removed by the tracker.
+     * 
+     * <p><b>Scheduling:</b></p>
+     * The task runs every tick but only visits the holders due on this tick of the
+     * BossBarRefreshWheel. After each refresh the holder is rescheduled by
+     * computeRefreshInterval(): every few ticks when close or closing in fast, up to every
+     * boss-bar.max-refresh-ticks when far away.
      * 
      * <p><b>Performance Considerations:</b></p>
      * <ul>
-     *   <li>Runs every 10 ticks (0.5 seconds) - balance between responsiveness and performance</li>
-     *   <li>Only calculates distance for players actively holding compass</li>
-     *   <li>Uses 3D Euclidean distance calculation via Location.distance()</li>
+     *   <li>Each holder is refreshed on their own interval, spread over the ticks of the wheel</li>
+     *   <li>At most boss-bar.max-updates-per-tick holders are refreshed per tick; the rest move
+     *       to the front of the next tick, so the per-tick cost is bounded without starving anyone</li>
+     *   <li>Work scales with the number of compass holders, not the number of online players</li>
+     *   <li>Distances are compared in squared space against primitive target coordinates;
+     *       a steady-state refresh allocates nothing (see /enhancedcompass benchmark)</li>
      *   <li>Permission check included to prevent unauthorized players from seeing boss bars</li>
      * </ul>
      * 
@@ -292,38 +627,191 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         updateTask = new BukkitRunnable() {
             @Override
             public void run() {
-                // Iterate through all players currently online on the server
-                for (Player player : Bukkit.getOnlinePlayers()) {
-                    // Check if player is holding a compass in EITHER hand
-                    // This includes both main hand and off hand to support dual-wielding
-                    boolean holdingCompass = player.getInventory().getItemInMainHand().getType() == Material.COMPASS ||
-                                            player.getInventory().getItemInOffHand().getType() == Material.COMPASS;
+                // Iterate through the holders whose refresh is due this tick
+                int budget = configManager.getBossBarMaxUpdatesPerTick();
+                int processed = 0;
+                List<UUID> due = bossBarRefreshWheel.advance();
+                
+                // Async render mode: only snapshot positions here, titles are built by the renderer
+                RenderBatch batch = bossBarRenderer != null && configManager.isBossBarAsyncRender()
+                    ? new RenderBatch(bossBarRefreshWheel.getCurrentTick(), budget > 0 ? Math.min(budget, due.size()) : due.size())
+                    : null;
+                
+                for (UUID uuid : due) {
+                    PlayerState state = playerStates.get(uuid);
+                    if (!bossBarRefreshWheel.isDue(state) || !compassHolderTracker.getActiveHolders().contains(uuid)) {
+                        continue;  // Rescheduled since, or no longer holding a compass
+                    }
                     
-                    // Only show boss bar if player is holding compass
-                    if (holdingCompass) {
-                        // Retrieve the player's current compass target (if any)
-                        CompassTarget target = playerTargets.get(player.getUniqueId());
-                        
-                        // Update boss bar only if:
-                        // 1. Player has a target set (target != null)
-                        // 2. Player has permission to use enhanced compass features
-                        if (target != null && player.hasPermission("enhancedcompass.use")) {
-                            // Update or create boss bar with current distance
-                            updateBossBar(player, target);
+                    // The renderer still owns this holder's render fields (new target or render-mode
+                    // switch while their batch is in flight) - try again once the batch is applied
+                    if (state.renderInFlight) {
+                        bossBarRefreshWheel.schedule(uuid, state, 1);
+                        continue;
+                    }
+                    
+                    // Over this tick's budget - carry the rest over to the front of the next tick
+                    // (deferring also marks any duplicate entry later in this bucket as stale)
+                    if (budget > 0 && processed >= budget) {
+                        bossBarRefreshWheel.defer(uuid, state);
+                        bossBarUpdatesDeferred++;
+                        continue;
+                    }
+                    processed++;
+                    
+                    Player player = Bukkit.getPlayer(uuid);
+                    if (player == null) {
+                        continue;  // Quit this tick - the tracker drops them
+                    }
+                    
+                    // Retrieve the player's current compass target (if any)
+                    CompassTarget target = state.target;
+                    
+                    // Update boss bar only if:
+                    // 1. Player has a target set (target != null)
+                    // 2. Player has permission to use enhanced compass features
+                    if (target != null && hasCachedPermission(player, PlayerState.PERMISSION_USE)) {
+                        if (batch != null) {
+                            // Snapshot for the renderer; rescheduled when the batch is applied
+                            addToRenderBatch(batch, player, state, target);
+                            continue;
                         }
+                        
+                        // Update or create boss bar with current distance
+                        double previousDistance = state.refreshDistance;
+                        long previousTick = state.refreshTick;
+                        updateBossBar(player, target);
+                        bossBarRefreshWheel.schedule(uuid, state, computeRefreshInterval(
+                            state, previousDistance, previousTick, configManager.getWorldSettings(player.getWorld())));
                     } else {
-                        // Player is not holding compass, remove their boss bar if it exists
-                        // This ensures boss bar disappears immediately when compass is put away
-                        removeBossBar(player);
+                        // Nothing to show - look again later (a new target reschedules right away)
+                        bossBarRefreshWheel.schedule(uuid, state, configManager.getWorldSettings(player.getWorld()).maxRefreshTicks);
                     }
                 }
+                
+                if (batch != null && batch.size > 0) {
+                    bossBarRenderer.submit(batch);
+                }
             }
         };
         
-        // Schedule the task to run repeatedly
-        // Parameters: delay (0 ticks = start immediately), period (10 ticks = 0.5 seconds)
-        // 20 ticks = 1 second in Minecraft, so 10 ticks = 0.5 seconds
-        updateTask.runTaskTimer(this, 0L, 10L);
+        // Schedule the task to run every tick
+        // Parameters: delay (0 ticks = start immediately), period (1 tick)
+        // Each run only does the work due on that tick of the refresh wheel
+        updateTask.runTaskTimer(this, 0L, 1L);
+    }
+    
+    /**
+     * Adds a holder to an async render batch (main thread).
+     * Shows the bar now if needed and copies the player's position; nothing else is computed here.
+     * 
+     * @param batch The batch being filled by the update task
+     * @param player The holder
+     * @param state The holder's state
+     * @param target The holder's target
+     */
+    private void addToRenderBatch(RenderBatch batch, Player player, PlayerState state, CompassTarget target) {
+        int i = batch.size++;
+        batch.playerIds[i] = player.getUniqueId();
+        batch.states[i] = state;
+        batch.targets[i] = target;
+        batch.bossBars[i] = showBossBar(player, state);
+        batch.previousDistances[i] = state.refreshDistance;
+        batch.previousTicks[i] = state.refreshTick;
+        batch.worldSettings[i] = configManager.getWorldSettings(player.getWorld());
+        
+        // Target world should never be null, but check anyway for safety
+        batch.sameWorld[i] = target.worldId != null && target.worldId.equals(player.getWorld().getUID());
+        Location location = player.getLocation(scratchLocation);
+        batch.positions[i * 3] = location.getX();
+        batch.positions[i * 3 + 1] = location.getY();
+        batch.positions[i * 3 + 2] = location.getZ();
+        
+        // Render fields belong to the worker until applyRenderBatch() hands them back
+        state.renderInFlight = true;
+    }
+    
+    /**
+     * Applies titles rendered by the BossBarRenderer and reschedules the holders (main thread).
+     * 
+     * @param batch A batch the renderer has finished
+     */
+    private void applyRenderBatch(RenderBatch batch) {
+        for (int i = 0; i < batch.size; i++) {
+            PlayerState state = batch.states[i];
+            state.renderInFlight = false;
+            
+            if (state.bossBar != batch.bossBars[i]) {
+                // Bar released or replaced while the batch was rendering - a new bar still has an empty title
+                state.renderedTarget = null;
+            } else if (batch.titles[i] != null) {
+                batch.bossBars[i].name(batch.titles[i]);
+                bossBarUpdatesSent++;
+            } else {
+                bossBarUpdatesSkipped++;
+            }
+            
+            // Reschedule unless something else (new target, compass put away and back) already did
+            state.refreshDistance = batch.distances[i];
+            state.refreshTick = batch.tick;
+            UUID uuid = batch.playerIds[i];
+            if (state.nextRefreshTick == batch.tick && compassHolderTracker.getActiveHolders().contains(uuid)) {
+                bossBarRefreshWheel.schedule(uuid, state, computeRefreshInterval(
+                    state, batch.previousDistances[i], batch.previousTicks[i], batch.worldSettings[i]));
+            }
+        }
+    }
+    
+    /**
+     * Schedules a holder's next boss bar refresh (main thread only).
+     * 
+     * @param playerId The player's UUID
+     * @param delay Ticks from now
+     */
+    private void scheduleBossBarRefresh(UUID playerId, int delay) {
+        bossBarRefreshWheel.schedule(playerId, playerStates.computeIfAbsent(playerId, uuid -> new PlayerState()), delay);
+    }
+    
+    /**
+     * Decides how many ticks until a holder's boss bar is refreshed again.
+     * 
+     * <p><b>Rules:</b></p>
+     * <ul>
+     *   <li>Distance: grows linearly from boss-bar.min-refresh-ticks at the target to
+     *       boss-bar.max-refresh-ticks at boss-bar.far-distance-blocks and beyond
+     *       (per world, see WorldSettings)</li>
+     *   <li>Speed: never so long that the distance changes by more than
+     *       MAX_BLOCKS_BETWEEN_REFRESHES at the rate seen since the last refresh
+     *       (elytra and boats get short intervals even when far away)</li>
+     *   <li>Other dimension: the title doesn't change, so the longest interval</li>
+     * </ul>
+     * 
+     * @param state The player's state, after updateBossBar() recorded the new distance
+     * @param previousDistance Distance at the previous refresh, or -1 if unknown
+     * @param previousTick Wheel tick of the previous refresh
+     * @param settings Settings of the world the player is in
+     * @return Ticks until the next refresh
+     */
+    private int computeRefreshInterval(PlayerState state, double previousDistance, long previousTick, WorldSettings settings) {
+        int minTicks = settings.minRefreshTicks;
+        int maxTicks = settings.maxRefreshTicks;
+        double distance = state.refreshDistance;
+        if (distance < 0) {
+            return maxTicks;  // Other dimension
+        }
+        
+        // Farther away = longer interval
+        double interval = minTicks + (maxTicks - minTicks) * Math.min(1.0, distance / settings.farDistance);
+        
+        // Moving fast relative to the target = shorter interval
+        long elapsedTicks = state.refreshTick - previousTick;
+        if (previousDistance >= 0 && elapsedTicks > 0) {
+            double blocksPerTick = Math.abs(distance - previousDistance) / elapsedTicks;
+            if (blocksPerTick > 0) {
+                interval = Math.min(interval, MAX_BLOCKS_BETWEEN_REFRESHES / blocksPerTick);
+            }
+        }
+        return (int) Math.max(minTicks, Math.min(maxTicks, interval));
     }
     
     /**
@@ -356,97 +844,288 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      * @param target The compass target containing target type/name and location
      */
     private void updateBossBar(Player player, CompassTarget target) {
-        // Attempt to retrieve existing boss bar for this player
-        BossBar bossBar = playerBossBars.get(player.getUniqueId());
+        PlayerState state = playerStates.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerState());
+        BossBar bossBar = showBossBar(player, state);
+        
+        // Check if the target is in the same world as the player (by world UUID, no Location needed)
+        // Target world should never be null, but check anyway for safety
+        double distance = -1;  // -1 = different dimension
+        if (target.worldId != null && target.worldId.equals(player.getWorld().getUID())) {
+            // Read the player's position into the reused scratch Location (no allocation)
+            Location position = player.getLocation(scratchLocation);
+            double distanceSquared = target.distanceSquared(position.getX(), position.getY(), position.getZ());
+            
+            // Still rounds to the distance on the bar - no square root and no title needed
+            if (isRenderedDistance(state, target, distanceSquared)) {
+                state.refreshDistance = state.renderedDistance;  // Within half a block
+                state.refreshTick = bossBarRefreshWheel.getCurrentTick();
+                bossBarUpdatesSkipped++;
+                return;
+            }
+            
+            // Calculate 3D Euclidean distance in blocks: sqrt((x2-x1)² + (y2-y1)² + (z2-z1)²)
+            distance = Math.sqrt(distanceSquared);
+        }
+        state.refreshDistance = distance;
+        state.refreshTick = bossBarRefreshWheel.getCurrentTick();
+        
+        Component title = renderBossBarTitle(state, target, distance);
+        if (title == null) {
+            bossBarUpdatesSkipped++;
+            return;
+        }
+        
+        // Update boss bar with new title
+        // Progress is never changed from the 100% the bar was created with, so it isn't resent
+        bossBar.name(title);
+        bossBarUpdatesSent++;
+    }
+    
+    /**
+     * Checks, in squared space, whether a distance still rounds to the one on the player's bar.
+     * The bar shows round(d) = n for every d in [n - 0.5, n + 0.5), so it is enough to compare
+     * d² with the squared band ends stored when n was rendered - no square root per refresh.
+     * 
+     * @param state The player's state holding the rendered band
+     * @param target The target being refreshed
+     * @param distanceSquared The current squared distance
+     * @return True if the bar already shows this target and distance
+     */
+    private static boolean isRenderedDistance(PlayerState state, CompassTarget target, double distanceSquared) {
+        return state.renderedTarget == target &&
+               distanceSquared >= state.renderedMinDistanceSquared &&
+               distanceSquared < state.renderedMaxDistanceSquared;
+    }
+    
+    /**
+     * Gets a player's boss bar, showing it first if it is hidden and taking one from the
+     * pool if they don't have one this session.
+     * Main thread only.
+     * 
+     * @param player The player to show the boss bar to
+     * @param state The player's state holding the bar
+     * @return The player's boss bar
+     */
+    private BossBar showBossBar(Player player, PlayerState state) {
+        // Attempt to retrieve this session's boss bar for this player
+        BossBar bossBar = state.bossBar;
         
-        // Create a new boss bar if player doesn't have one yet
+        // Take a boss bar from the pool (or a new one) if player doesn't have one yet this session
         if (bossBar == null) {
-            // Create boss bar with:
-            // - Empty initial text (will be set below)
-            // - 100% progress (1.0f)
-            // - Blue color
-            // - PROGRESS overlay (standard bar, not NOTCHED variants)
-            bossBar = BossBar.bossBar(Component.empty(), 1.0f, BossBar.Color.BLUE, BossBar.Overlay.PROGRESS);
-            
-            // Show the boss bar to the player
-            player.showBossBar(bossBar);
+            bossBar = bossBarPool.acquire();
             
-            // Store boss bar reference for future updates
-            playerBossBars.put(player.getUniqueId(), bossBar);
+            // Store boss bar reference for the rest of the session
+            state.bossBar = bossBar;
+            
+            // Bar has an empty title - force the first render
+            state.renderedTarget = null;
         }
         
-        // Check if target location exists and is in the same world as the player
-        // Target location should never be null, but check anyway for safety
-        if (target.location != null && player.getWorld().equals(target.location.getWorld())) {
+        // Show the boss bar again if it was hidden (it still has its last title)
+        if (!state.bossBarVisible) {
+            player.showBossBar(bossBar);
+            state.bossBarVisible = true;
+        }
+        return bossBar;
+    }
+    
+    /**
+     * Builds the boss bar title for a target and distance, unless the bar already shows it.
+     * Touches no Bukkit state, so it runs on the main thread (render-mode main) or on the
+     * BossBarRenderer worker (render-mode async) - but only ever one of them at a time.
+     * 
+     * @param state The player's state holding the last rendered title
+     * @param target The target to render
+     * @param distance Distance to the target in blocks, or -1 for a different dimension
+     * @return The new title, or null if the bar already shows this target and rounded distance
+     */
+    private Component renderBossBarTitle(PlayerState state, CompassTarget target, double distance) {
+        if (distance >= 0) {
             // Same dimension - show distance
             
-            // Calculate 3D Euclidean distance in blocks
-            // Uses Bukkit's Location.distance() which calculates: sqrt((x2-x1)² + (y2-y1)² + (z2-z1)²)
-            double distance = player.getLocation().distance(target.location);
-            
-            // Format target name from UPPER_CASE to Title Case
-            String targetName = formatStructureName(target.structureType);
+            // Skip the update if the bar already shows this target and rounded distance
+            // Every name() call sends a packet, and most ticks the player hasn't moved a whole block
+            long roundedDistance = Math.round(distance);
+            if (state.renderedTarget == target && state.renderedDistance == roundedDistance) {
+                return null;
+            }
             
             // Build boss bar title with colored components:
             // [Aqua Target Name] - [Yellow distance blocks]
-            Component title = Component.text(targetName, NamedTextColor.AQUA)
-                .append(Component.text(" - ", NamedTextColor.GRAY))
-                .append(Component.text(String.format("%.0f", distance) + " blocks", NamedTextColor.YELLOW));
-            
-            // Update boss bar with new title
-            bossBar.name(title);
+            // The name part is a shared prefix from the display name table
+            Component title = displayNames.getTitlePrefix(target.structureType, NamedTextColor.AQUA)
+                .append(Component.text(roundedDistance + " blocks", NamedTextColor.YELLOW));
+            state.renderedDistance = roundedDistance;
             
-            // Ensure progress is at 100% (full bar)
-            bossBar.progress(1.0f);
+            // Squared band that still rounds to roundedDistance (see isRenderedDistance())
+            double bandMin = Math.max(0, roundedDistance - 0.5);
+            double bandMax = roundedDistance + 0.5;
+            state.renderedMinDistanceSquared = bandMin * bandMin;
+            state.renderedMaxDistanceSquared = bandMax * bandMax;
+            state.renderedTarget = target;
+            return title;
         } else {
             // Different dimension - show warning message
             
-            // Format target name from UPPER_CASE to Title Case
-            String targetName = formatStructureName(target.structureType);
+            // Skip the update if the bar already shows the warning for this target
+            if (state.renderedTarget == target && state.renderedDistance == PlayerState.RENDERED_OTHER_DIMENSION) {
+                return null;
+            }
             
             // Build boss bar title with red colors to indicate issue:
             // [Red Target Name] - [Red "Not in same dimension"]
-            Component title = Component.text(targetName, NamedTextColor.RED)
-                .append(Component.text(" - ", NamedTextColor.GRAY))
+            Component title = displayNames.getTitlePrefix(target.structureType, NamedTextColor.RED)
                 .append(Component.text("Not in same dimension", NamedTextColor.RED));
+            state.renderedDistance = PlayerState.RENDERED_OTHER_DIMENSION;
+            state.renderedMinDistanceSquared = -1;  // Empty band: matches no distance
+            state.renderedMaxDistanceSquared = -1;
+            state.renderedTarget = target;
+            return title;
+        }
+    }
+    
+    /**
+     * Checks a permission against the sender's permission snapshot.
+     * Console and other non-player senders always pass, like the command checks.
+     * 
+     * <p><b>Why:</b></p>
+     * hasPermission() walks the permission plugin's inheritance and wildcards. The update
+     * loop and tab completion ask the same questions many times a second, so the answers
+     * are snapshotted per player and refreshed on join, on world change (per-world
+     * permissions) and when the snapshot is older than permission-cache.refresh-seconds.
+     * Commands themselves still call hasPermission() so they are never acted on with a
+     * stale grant.
+     * 
+     * @param sender The sender to check
+     * @param permission One of the PlayerState.PERMISSION_* bits
+     * @return True if the sender has the permission
+     */
+    private boolean hasCachedPermission(CommandSender sender, int permission) {
+        if (!(sender instanceof Player)) {
+            return true;
+        }
+        Player player = (Player) sender;
+        PlayerState state = playerStates.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerState());
+        int permissions = state.permissions;
+        if ((permissions & PlayerState.PERMISSIONS_VALID) == 0 || System.nanoTime() - state.permissionsExpireAt > 0) {
+            permissions = refreshPermissions(player);
+        }
+        return (permissions & permission) != 0;
+    }
+    
+    /**
+     * Takes a new permission snapshot for a player.
+     * Safe from any thread (tab completion may run off the main thread).
+     * 
+     * @param player The player to snapshot
+     * @return The new permission bits
+     */
+    private int refreshPermissions(Player player) {
+        int permissions = PlayerState.PERMISSIONS_VALID;
+        if (player.hasPermission("enhancedcompass.use")) {
+            permissions |= PlayerState.PERMISSION_USE;
+        }
+        if (player.hasPermission("enhancedcompass.reload")) {
+            permissions |= PlayerState.PERMISSION_RELOAD;
+        }
+        if (player.hasPermission("enhancedcompass.admin")) {
+            permissions |= PlayerState.PERMISSION_ADMIN;
+        }
+        if (player.hasPermission("enhancedcompass.index")) {
+            permissions |= PlayerState.PERMISSION_INDEX;
+        }
+        
+        PlayerState state = playerStates.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerState());
+        state.permissionsExpireAt = System.nanoTime() + configManager.getPermissionCacheSeconds() * 1_000_000_000L;
+        state.permissions = permissions;
+        return permissions;
+    }
+    
+    /**
+     * Gets a player's current compass target.
+     * Lock-free - safe to call from any thread.
+     * 
+     * @param playerId The player's UUID
+     * @return The player's target, or null if none is set
+     */
+    private CompassTarget getPlayerTarget(UUID playerId) {
+        PlayerState state = playerStates.get(playerId);
+        return state == null ? null : state.target;
+    }
+    
+    /**
+     * Sets a player's compass target, creating their state record if needed.
+     * Safe to call from any thread; the update loop sees the new target on its next run.
+     * 
+     * @param playerId The player's UUID
+     * @param target The new target
+     */
+    private void setPlayerTarget(UUID playerId, CompassTarget target) {
+        PlayerState state = playerStates.computeIfAbsent(playerId, uuid -> new PlayerState());
+        state.target = target;
+        
+        // Refresh schedule fields are main thread only; off-thread callers are picked up
+        // by the holder's next regular refresh
+        if (Bukkit.isPrimaryThread()) {
+            state.refreshDistance = -1;  // New target - old distances say nothing about speed
             
-            // Update boss bar with warning message
-            bossBar.name(title);
-            
-            // Ensure progress is at 100% (full bar)
-            bossBar.progress(1.0f);
+            // Show a holder the new target on the next tick instead of after a long far-away interval
+            if (compassHolderTracker != null && compassHolderTracker.getActiveHolders().contains(playerId)) {
+                bossBarRefreshWheel.schedule(playerId, state, 1);
+            }
         }
     }
     
     /**
-     * Removes and hides a player's boss bar if it exists.
-     * This method is called when a player stops holding a compass or quits the server.
+     * Hides a player's boss bar but keeps it for the rest of their session.
+     * This method is called when a player stops holding a compass.
      * 
-     * <p><b>Cleanup Process:</b></p>
-     * <ol>
-     *   <li>Remove boss bar from internal map (returns null if not present)</li>
-     *   <li>If boss bar existed, hide it from the player</li>
-     *   <li>Boss bar is garbage collected after references are removed</li>
-     * </ol>
+     * <p><b>Why keep it:</b></p>
+     * Players flick through hotbar slots all the time. Keeping the bar means holding the
+     * compass again only sends a show packet - no new BossBar, and no new title if the
+     * distance hasn't changed, because the bar still carries the last rendered one.
      * 
      * <p><b>Safety Considerations:</b></p>
      * <ul>
-     *   <li>Safe to call even if player has no boss bar (null check prevents errors)</li>
-     *   <li>Called frequently by update task, so must be efficient</li>
-     *   <li>Uses Map.remove() which returns null if key not present</li>
+     *   <li>Safe to call even if player has no boss bar or it is already hidden</li>
+     *   <li>Only the boss bar is hidden - the player's target is kept</li>
      * </ul>
      * 
-     * @param player The player whose boss bar to remove
+     * @param player The player whose boss bar to hide
      */
-    private void removeBossBar(Player player) {
-        // Remove boss bar from map (returns the boss bar if it existed, null otherwise)
-        BossBar bossBar = playerBossBars.remove(player.getUniqueId());
-        
-        // Only hide if boss bar actually existed
-        if (bossBar != null) {
+    private void hideBossBar(Player player) {
+        PlayerState state = playerStates.get(player.getUniqueId());
+        if (state != null && state.bossBar != null && state.bossBarVisible) {
             // Hide the boss bar from the player's screen
             // This removes it from the client but doesn't prevent future boss bars
-            player.hideBossBar(bossBar);
+            player.hideBossBar(state.bossBar);
+            state.bossBarVisible = false;
+        }
+    }
+    
+    /**
+     * Hides a player's boss bar and returns it to the pool.
+     * This method is called when a player quits the server.
+     * 
+     * <p><b>Cleanup Process:</b></p>
+     * <ol>
+     *   <li>Hide the boss bar if it is showing</li>
+     *   <li>Detach it from the player's state</li>
+     *   <li>Hand it to the BossBarPool so the next player to hold a compass reuses it</li>
+     * </ol>
+     * 
+     * @param player The player whose boss bar to remove
+     */
+    private void removeBossBar(Player player) {
+        // Detach boss bar from the player's state (null if player has no state or no bar)
+        PlayerState state = playerStates.get(player.getUniqueId());
+        BossBar bossBar = state == null ? null : state.bossBar;
+        
+        // Only release if boss bar actually existed
+        if (bossBar != null) {
+            hideBossBar(player);
+            state.bossBar = null;
+            bossBarPool.release(bossBar);
         }
     }
     
@@ -464,40 +1143,15 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      *   <li>CHERRY_GROVE → "Cherry Grove"</li>
      * </ul>
      * 
-     * <p><b>Algorithm:</b></p>
-     * <ol>
-     *   <li>Split string on underscores</li>
-     *   <li>For each word: capitalize first letter, lowercase remaining letters</li>
-     *   <li>Join words with spaces</li>
-     * </ol>
-     * 
-     * <p><b>Performance:</b> This method is called frequently (every boss bar update),
-     * but String operations are relatively fast for short names.</p>
+     * <p><b>Performance:</b> Names are looked up in the DisplayNameTable built on enable and
+     * on reload, so no formatting or allocation happens for any registry structure or biome.
+     * Unknown names (e.g. typos in commands) are formatted on the spot.</p>
      * 
      * @param structureType The structure or biome type in UPPER_CASE format (e.g., "ANCIENT_CITY", "DARK_FOREST")
      * @return Formatted name with proper capitalization (e.g., "Ancient City", "Dark Forest")
      */
     private String formatStructureName(String structureType) {
-        // Split on underscores to get individual words
-        String[] words = structureType.split("_");
-        
-        // StringBuilder for efficient string concatenation
-        StringBuilder result = new StringBuilder();
-        
-        // Process each word
-        for (String word : words) {
-            // Add space before word if not first word
-            if (result.length() > 0) {
-                result.append(" ");
-            }
-            
-            // Capitalize first letter, lowercase the rest
-            // substring(0, 1) = first character
-            // substring(1) = rest of string
-            result.append(word.substring(0, 1).toUpperCase()).append(word.substring(1).toLowerCase());
-        }
-        
-        return result.toString();
+        return displayNames.getName(structureType);
     }
     
     /**
@@ -561,6 +1215,24 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                 .append(Component.text(" - Reload configuration", NamedTextColor.GRAY)));
         }
         
+        // Stats command - only show to console or players with admin permission
+        if (!(sender instanceof Player) || sender.hasPermission("enhancedcompass.admin")) {
+            sender.sendMessage(Component.text("/enhancedcompass stats", NamedTextColor.YELLOW)
+                .append(Component.text(" - Show cache and search statistics", NamedTextColor.GRAY)));
+        }
+        
+        // Benchmark command - only show to console or players with admin permission
+        if (!(sender instanceof Player) || sender.hasPermission("enhancedcompass.admin")) {
+            sender.sendMessage(Component.text("/enhancedcompass benchmark", NamedTextColor.YELLOW)
+                .append(Component.text(" - Measure boss bar refresh allocation", NamedTextColor.GRAY)));
+        }
+        
+        // Index command - only show to console or players with index permission
+        if (!(sender instanceof Player) || sender.hasPermission("enhancedcompass.index")) {
+            sender.sendMessage(Component.text("/enhancedcompass index <world> <radius>|status|stop", NamedTextColor.YELLOW)
+                .append(Component.text(" - Pre-index structures around spawn", NamedTextColor.GRAY)));
+        }
+        
         // Bottom border - completes the help box
         sender.sendMessage(Component.text("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━", NamedTextColor.GOLD));
     }
@@ -620,7 +1292,7 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         // RELOAD COMMAND - works from console or with permission
-        // This command reloads config.yml and recreates the ConfigManager
+        // This command reloads config.yml and replaces the ConfigManager
         if (args.length > 0 && args[0].equalsIgnoreCase("reload")) {
             // Permission check only for players (console always has permission)
             if (sender instanceof Player && !sender.hasPermission("enhancedcompass.reload")) {
@@ -628,16 +1300,39 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                 return true;
             }
             
-            // Reload config.yml from disk
-            // This re-reads the file but doesn't recreate the ConfigManager
-            reloadConfig();
-            
-            // Recreate ConfigManager to parse the newly loaded config
-            // This updates all cached values (search radius, enabled structures, etc.)
-            configManager = new ConfigManager(this);
-            
-            // Confirm reload success
-            sender.sendMessage(Component.text("EnhancedCompass configuration reloaded!", NamedTextColor.GREEN));
+            // Read and parse config.yml off the main thread; the result is confirmed when it is applied
+            reloadConfigAsync(sender);
+            return true;
+        }
+        
+        // STATS COMMAND - works from console or with permission
+        // Shows cache and search counters for tuning
+        if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            // Permission check only for players (console always has permission)
+            if (sender instanceof Player && !sender.hasPermission("enhancedcompass.admin")) {
+                sender.sendMessage(Component.text("You don't have permission to view plugin statistics.", NamedTextColor.RED));
+                return true;
+            }
+            sendStats(sender);
+            return true;
+        }
+        
+        // BENCHMARK COMMAND - works from console or with permission
+        // Measures main thread allocation of a steady-state boss bar refresh
+        if (args.length > 0 && args[0].equalsIgnoreCase("benchmark")) {
+            // Permission check only for players (console always has permission)
+            if (sender instanceof Player && !sender.hasPermission("enhancedcompass.admin")) {
+                sender.sendMessage(Component.text("You don't have permission to run benchmarks.", NamedTextColor.RED));
+                return true;
+            }
+            runRefreshBenchmark(sender);
+            return true;
+        }
+        
+        // INDEX COMMAND - works from console or with permission
+        // Starts, stops or reports on background structure pre-indexing
+        if (args.length > 0 && args[0].equalsIgnoreCase("index")) {
+            handleIndexCommand(sender, args);
             return true;
         }
         
@@ -667,7 +1362,7 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         
         // WORLD BLACKLIST CHECK - plugin can be disabled in specific worlds
         // Useful for lobby worlds, minigame arenas, etc.
-        if (configManager.isWorldBlacklisted(player.getWorld().getName())) {
+        if (configManager.getWorldSettings(player.getWorld()).blacklisted) {
             player.sendMessage(Component.text("Enhanced compass is disabled in this world.", NamedTextColor.RED));
             return true;
         }
@@ -682,7 +1377,7 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         // Useful for checking what structure you're heading towards
         if (args[0].equalsIgnoreCase("current")) {
             // Retrieve player's current target (if any)
-            CompassTarget target = playerTargets.get(player.getUniqueId());
+            CompassTarget target = getPlayerTarget(player.getUniqueId());
             
             // Check if player has a target set
             if (target == null) {
@@ -694,9 +1389,10 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
             String structureName = formatStructureName(target.structureType);
             
             // Check if target is in same dimension as player
-            if (target.location != null && player.getWorld().equals(target.location.getWorld())) {
+            if (target.worldId != null && target.worldId.equals(player.getWorld().getUID())) {
                 // Same dimension - calculate and show distance
-                double distance = player.getLocation().distance(target.location);
+                Location position = player.getLocation(scratchLocation);
+                double distance = Math.sqrt(target.distanceSquared(position.getX(), position.getY(), position.getZ()));
                 
                 // Send structure name in aqua
                 player.sendMessage(Component.text("Current target: ", NamedTextColor.GREEN)
@@ -733,7 +1429,7 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
             
             // Check if biome type is enabled in config for current world type
             // Prevents searching for biomes that are disabled or don't exist in this dimension
-            if (!configManager.isBiomeEnabled(player.getWorld().getEnvironment(), biomeInput.toUpperCase())) {
+            if (!configManager.isBiomeEnabled(player.getWorld(), biomeInput)) {
                 player.sendMessage(Component.text("This biome type is not enabled in the current world type.", NamedTextColor.RED));
                 return true;
             }
@@ -749,11 +1445,19 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                 return true;
             }
             
+            // Refuse to start a second search while one is still running for this player
+            if (!structureSearchPipeline.tryBegin(player.getUniqueId())) {
+                sendSearchInProgress(player);
+                return true;
+            }
+            
             // Notify player that search is starting (can take a moment for large search radius)
             player.sendMessage(Component.text("Searching for nearest " + formatStructureName(biomeInput) + " biome...", NamedTextColor.YELLOW));
             
             // Get configured search radius from config (in chunks, not blocks)
-            int searchRadius = configManager.getSearchRadius();
+            // The search keeps using this config snapshot even if a reload lands meanwhile
+            final ConfigManager config = configManager;
+            int searchRadius = config.getSearchRadius(player.getWorld());
             
             // Store final variables for use in async callback
             final String finalBiomeInput = biomeInput.toUpperCase();
@@ -777,18 +1481,41 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                     //           Using 32 provides good balance of speed and accuracy
                     //
                     // Returns: Location of nearest biome, or null if not found within radius
-                    Location biomeResult = world.locateNearestBiome(
-                        playerLoc,
-                        biome,
-                        searchRadius * 16,  // Convert chunks to blocks
-                        32  // Step size of 32 blocks - matches vanilla /locate biome resolution
-                    );
+                    Location located = null;
+                    boolean cached = false;
+                    
+                    // Reuse a recent result from nearby if it is close enough to the true answer
+                    BiomeSearchCache.Lookup cachedLookup = biomeSearchCache.lookup(config, world, finalBiomeInput, playerLoc, searchRadius * 16);
+                    if (cachedLookup != null) {
+                        located = cachedLookup.location;
+                        cached = true;
+                    } else {
+                        try {
+                            located = world.locateNearestBiome(
+                                playerLoc,
+                                biome,
+                                searchRadius * 16,  // Convert chunks to blocks
+                                32  // Step size of 32 blocks - matches vanilla /locate biome resolution
+                            );
+                            
+                            // Remember the answer (including "not found") for nearby searches
+                            biomeSearchCache.record(config, world, finalBiomeInput, playerLoc, searchRadius * 16, located);
+                        } catch (RuntimeException e) {
+                            // Treat a failed lookup as "not found" so the in-progress slot is still released
+                            getLogger().warning("Biome search for " + finalBiomeInput + " failed: " + e.getMessage());
+                        }
+                    }
+                    final Location biomeResult = located;
+                    final boolean fromCache = cached;
                     
                     // Switch back to main thread to update player state and send messages
                     // Bukkit API calls must be made on the main thread
                     new BukkitRunnable() {
                         @Override
                         public void run() {
+                            // Release the in-progress slot so the player can search again
+                            structureSearchPipeline.end(playerUUID);
+                            
                             // Verify player is still online before sending messages
                             Player onlinePlayer = Bukkit.getPlayer(playerUUID);
                             if (onlinePlayer == null) {
@@ -810,7 +1537,7 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                             // Store the target for boss bar updates
                             // This allows the update task to show real-time distance in boss bar
                             CompassTarget target = new CompassTarget(finalBiomeInput, biomeResult);
-                            playerTargets.put(playerUUID, target);
+                            setPlayerTarget(playerUUID, target);
                             
                             // Calculate initial distance for display
                             // This is a 3D Euclidean distance in blocks
@@ -824,6 +1551,11 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                             onlinePlayer.sendMessage(Component.text("Distance: ", NamedTextColor.GREEN)
                                 .append(Component.text(String.format("%.0f", distance) + " blocks", NamedTextColor.YELLOW)));
                             
+                            // Let the player know the answer came from an earlier search
+                            if (fromCache) {
+                                onlinePlayer.sendMessage(Component.text("Location found in the biome cache", NamedTextColor.GRAY));
+                            }
+                            
                             // Save the player's target to disk for persistence across server restarts
                             savePlayerTarget(onlinePlayer, target);
                         }
@@ -838,11 +1570,8 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         // This is more convenient than typing a specific village type
         // Searches: village_plains, village_desert, village_savanna, village_snowy, village_taiga
         if (structureInput.equals("village")) {
-            // Notify player that search is starting
-            player.sendMessage(Component.text("Searching for nearest village of any type...", NamedTextColor.YELLOW));
-            
             // Get configured search radius from config
-            int searchRadius = configManager.getSearchRadius();
+            int searchRadius = configManager.getSearchRadius(player.getWorld());
             
             // Array of all village structure types in Minecraft
             String[] villageTypes = {
@@ -853,16 +1582,13 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                 "village_taiga"
             };
             
-            // Variables to track the closest village found
-            Location closestLocation = null;
-            String closestVillageType = null;
-            double closestDistance = Double.MAX_VALUE;
-            
-            // Search for each village type and find the closest one
+            // Collect every enabled village type as a search candidate
+            // The pipeline searches all of them and keeps the closest hit
+            List<SearchCandidate> candidates = new ArrayList<>();
             for (String villageType : villageTypes) {
                 // Check if this village type is enabled in config for this dimension
                 // Skip disabled village types
-                if (!configManager.isStructureEnabled(player.getWorld().getEnvironment(), villageType.toUpperCase())) {
+                if (!configManager.isStructureEnabled(player.getWorld(), villageType)) {
                     continue;
                 }
                 
@@ -875,52 +1601,21 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                     continue;
                 }
                 
-                // Use Bukkit's structure location API
-                // Parameters: origin location, structure type, search radius in chunks, find unexplored
-                var structureResult = player.getWorld().locateNearestStructure(
-                    player.getLocation(),
-                    structure,
-                    searchRadius,
-                    false  // false = can return already found structures
-                );
-                
-                // If this village type was found, check if it's closest
-                if (structureResult != null) {
-                    Location loc = structureResult.getLocation();
-                    double distance = player.getLocation().distance(loc);
-                    
-                    // Update closest if this is nearer
-                    if (distance < closestDistance) {
-                        closestDistance = distance;
-                        closestLocation = loc;
-                        closestVillageType = villageType.toUpperCase();
-                    }
-                }
+                candidates.add(new SearchCandidate(villageType.toUpperCase(), structure));
             }
             
-            // Check if any village was found
-            if (closestLocation == null) {
-                player.sendMessage(Component.text("No villages found within " + (searchRadius * 16) + " blocks.", NamedTextColor.RED));
+            // Refuse to start a second search while one is still running for this player
+            if (!structureSearchPipeline.tryBegin(player.getUniqueId())) {
+                sendSearchInProgress(player);
                 return true;
             }
             
-            // Set vanilla compass target to the village location
-            // This makes the compass needle point to the structure
-            player.setCompassTarget(closestLocation);
-            
-            // Store the target for boss bar updates
-            // This allows the boss bar system to show real-time distance
-            CompassTarget target = new CompassTarget(closestVillageType, closestLocation);
-            playerTargets.put(player.getUniqueId(), target);
-            
-            // Display success messages with structure name and distance
-            player.sendMessage(Component.text("Found " + formatStructureName(closestVillageType) + "!", NamedTextColor.GREEN));
-            player.sendMessage(Component.text("Compass now pointing to " + formatStructureName(closestVillageType) + "!", NamedTextColor.GREEN));
-            player.sendMessage(Component.text("Distance: ", NamedTextColor.GREEN)
-                .append(Component.text(String.format("%.0f", closestDistance) + " blocks", NamedTextColor.YELLOW)));
+            // Notify player that search is starting
+            player.sendMessage(Component.text("Searching for nearest village of any type...", NamedTextColor.YELLOW));
             
-            // Save the player's target to disk for persistence
-            savePlayerTarget(player, target);
+            // Hand the snapshot to the pipeline - the result is applied later on the main thread
+            structureSearchPipeline.submit(new StructureSearchRequest(player, SearchKind.VILLAGE, null, candidates,
+                searchRadius, configManager.getRingSchedule(searchRadius)));
             
             return true;
         }
@@ -929,17 +1624,11 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         // This finds the absolute closest structure of any type that's enabled
         // Useful for exploration or when you don't care what structure you find
         if (structureInput.equals("anything")) {
-            // Notify player that search is starting
-            player.sendMessage(Component.text("Searching for nearest structure of any type...", NamedTextColor.YELLOW));
-            
             // Get configured search radius from config
-            int searchRadius = configManager.getSearchRadius();
+            int searchRadius = configManager.getSearchRadius(player.getWorld());
             
-            // Get current world's dimension type (NORMAL, NETHER, or THE_END)
-            World.Environment environment = player.getWorld().getEnvironment();
-            
-            // Get list of all enabled structures for this dimension from config
-            List<String> enabledStructures = configManager.getEnabledStructuresForEnvironment(environment);
+            // Get list of all enabled structures for this world from config
+            List<String> enabledStructures = configManager.getEnabledStructures(player.getWorld());
             
             // Check if any structures are enabled for this dimension
             if (enabledStructures.isEmpty()) {
@@ -947,12 +1636,8 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                 return true;
             }
             
-            // Variables to track the closest structure found across all types
-            Location closestLocation = null;
-            String closestStructureType = null;
-            double closestDistance = Double.MAX_VALUE;
-            
-            // Search for each enabled structure type and find the absolute closest
+            // Resolve every enabled structure type to a search candidate
+            List<SearchCandidate> candidates = new ArrayList<>();
             for (String structureType : enabledStructures) {
                 // Get structure from Bukkit Registry
                 // Convert to lowercase for NamespacedKey (e.g., "ANCIENT_CITY" → "ancient_city")
@@ -963,49 +1648,21 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
                     continue;
                 }
                 
-                // Search for this structure type
-                var structureResult = player.getWorld().locateNearestStructure(
-                    player.getLocation(),
-                    structure,
-                    searchRadius,
-                    false  // false = can return already found structures
-                );
-                
-                // If this structure type was found, check if it's closest
-                if (structureResult != null) {
-                    Location loc = structureResult.getLocation();
-                    double distance = player.getLocation().distance(loc);
-                    
-                    // Update closest if this is nearer than any structure found so far
-                    if (distance < closestDistance) {
-                        closestDistance = distance;
-                        closestLocation = loc;
-                        closestStructureType = structureType;
-                    }
-                }
+                candidates.add(new SearchCandidate(structureType, structure));
             }
             
-            // Check if any structure was found
-            if (closestLocation == null) {
-                player.sendMessage(Component.text("No structures found within " + (searchRadius * 16) + " blocks.", NamedTextColor.RED));
+            // Refuse to start a second search while one is still running for this player
+            if (!structureSearchPipeline.tryBegin(player.getUniqueId())) {
+                sendSearchInProgress(player);
                 return true;
             }
             
-            // Set vanilla compass target to the structure location
-            player.setCompassTarget(closestLocation);
-            
-            // Store the target for boss bar updates
-            CompassTarget target = new CompassTarget(closestStructureType, closestLocation);
-            playerTargets.put(player.getUniqueId(), target);
-            
-            // Display success messages with structure name and distance
-            player.sendMessage(Component.text("Found " + formatStructureName(closestStructureType) + "!", NamedTextColor.GREEN));
-            player.sendMessage(Component.text("Compass now pointing to " + formatStructureName(closestStructureType) + "!", NamedTextColor.GREEN));
-            player.sendMessage(Component.text("Distance: ", NamedTextColor.GREEN)
-                .append(Component.text(String.format("%.0f", closestDistance) + " blocks", NamedTextColor.YELLOW)));
+            // Notify player that search is starting
+            player.sendMessage(Component.text("Searching for nearest structure of any type...", NamedTextColor.YELLOW));
             
-            // Save the player's target to disk for persistence
-            savePlayerTarget(player, target);
+            // Hand the snapshot to the pipeline - the result is applied later on the main thread
+            structureSearchPipeline.submit(new StructureSearchRequest(player, SearchKind.ANYTHING, null, candidates,
+                searchRadius, configManager.getRingSchedule(searchRadius)));
             
             return true;
         }
@@ -1015,7 +1672,7 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         
         // Check if structure type is enabled in config for current world type
         // Prevents searching for structures that are disabled or don't exist in this dimension
-        if (!configManager.isStructureEnabled(player.getWorld().getEnvironment(), structureInput.toUpperCase())) {
+        if (!configManager.isStructureEnabled(player.getWorld(), structureInput)) {
             player.sendMessage(Component.text("This structure type is not enabled in the current world type.", NamedTextColor.RED));
             return true;
         }
@@ -1033,72 +1690,429 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
             return true;
         }
         
+        // Refuse to start a second search while one is still running for this player
+        if (!structureSearchPipeline.tryBegin(player.getUniqueId())) {
+            sendSearchInProgress(player);
+            return true;
+        }
+        
         // Notify player that search is starting (can take a moment for large search radius)
         player.sendMessage(Component.text("Searching for nearest " + formatStructureName(structureInput) + "...", NamedTextColor.YELLOW));
         
         // Get configured search radius from config (in chunks, not blocks)
-        int searchRadius = configManager.getSearchRadius();
+        int searchRadius = configManager.getSearchRadius(player.getWorld());
         
         // Create final variable for use in lambda/inner classes if needed
         final String finalStructureInput = structureInput.toUpperCase();
         
-        // CRITICAL: Pass the Structure object directly, NOT the StructureType
+        // CRITICAL: The candidate carries the Structure object directly, NOT the StructureType
         // Many structures share the same StructureType (e.g., "jigsaw") 
         // but are different actual structures (ancient_city, trial_chambers, villages, etc.)
         // Using the Structure object ensures we search for the correct structure
-        //
-        // Method: World.locateNearestStructure()
-        // Parameters:
-        //   - origin: Starting location for search (player's current location)
-        //   - structure: The specific Structure object to search for
-        //   - radius: Search radius in CHUNKS (not blocks)
-        //   - findUnexplored: false = can return previously found structures
-        //
-        // Returns: StructureSearchResult containing location, or null if not found
-        var structureResult = player.getWorld().locateNearestStructure(
-            player.getLocation(),
-            structure,  
-            searchRadius,
-            false  // false = can return already found/generated structures
-        );
-        
-        // Check if structure was found within search radius
-        if (structureResult == null) {
+        List<SearchCandidate> candidates = List.of(new SearchCandidate(finalStructureInput, structure));
+        
+        // Hand the snapshot to the pipeline - the result is applied later on the main thread
+        structureSearchPipeline.submit(new StructureSearchRequest(player, SearchKind.SINGLE, finalStructureInput, candidates,
+            searchRadius, configManager.getRingSchedule(searchRadius)));
+        
+        return true;
+    }
+    
+    /**
+     * Reloads config.yml without blocking the server thread.
+     * 
+     * <p><b>Reload Process:</b></p>
+     * <ol>
+     *   <li>Main thread: number the reload</li>
+     *   <li>Worker thread: read config.yml (with the defaults from the plugin JAR), parse and
+     *       validate it into a new ConfigManager</li>
+     *   <li>Main thread: compile its per-world settings and publish it with a single write to
+     *       the volatile configManager field (see applyReloadedConfig())</li>
+     * </ol>
+     * 
+     * <p><b>Consistency:</b></p>
+     * A ConfigManager is never modified after it is published, so searches already running keep
+     * the one they started with. A config.yml that can't be parsed leaves the current config in
+     * place. When reloads overlap (e.g. the file watcher and the command), only the newest is applied.
+     * 
+     * <p><b>Registry Access:</b> The worker reads the structure and biome registries, which are
+     * frozen once the server has started.</p>
+     * 
+     * @param sender Who gets the result message (the console for file watcher reloads)
+     */
+    void reloadConfigAsync(CommandSender sender) {
+        int generation = ++configGeneration;
+        File configFile = new File(getDataFolder(), "config.yml");
+        
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                ConfigManager loaded = null;
+                String error = null;
+                try {
+                    YamlConfiguration config = new YamlConfiguration();
+                    config.load(configFile);
+                    
+                    // Same defaults getConfig() would have (keys missing from the file)
+                    InputStream defaults = getResource("config.yml");
+                    if (defaults != null) {
+                        try (InputStreamReader reader = new InputStreamReader(defaults, StandardCharsets.UTF_8)) {
+                            config.setDefaults(YamlConfiguration.loadConfiguration(reader));
+                        }
+                    }
+                    loaded = new ConfigManager(EnhancedCompass.this, config);
+                } catch (IOException | InvalidConfigurationException | RuntimeException e) {
+                    error = e.getMessage();
+                }
+                
+                // Switch back to main thread to publish the new config
+                if (isEnabled()) {
+                    ConfigManager result = loaded;
+                    String failure = error;
+                    Bukkit.getScheduler().runTask(EnhancedCompass.this,
+                                                  () -> applyReloadedConfig(sender, generation, result, failure));
+                }
+            }
+        }.runTaskAsynchronously(this);
+    }
+    
+    /**
+     * Publishes a configuration parsed by reloadConfigAsync() (main thread).
+     * 
+     * @param sender Who gets the result message
+     * @param generation Number of the reload
+     * @param loaded Parsed configuration, or null if parsing failed
+     * @param error Why parsing failed (when loaded is null)
+     */
+    private void applyReloadedConfig(CommandSender sender, int generation, ConfigManager loaded, String error) {
+        if (loaded == null) {
+            getLogger().warning("Failed to reload config.yml, keeping the current configuration: " + error);
+            sender.sendMessage(Component.text("config.yml could not be loaded, keeping the current configuration: " + error,
+                                              NamedTextColor.RED));
+            return;
+        }
+        if (generation != configGeneration) {
+            return;  // A newer reload is on its way and reports for both
+        }
+        
+        // Resolve the settings of the loaded worlds before anyone can see the new config
+        // A boss-bar.render-mode switch takes effect on the next tick; holders whose batch is
+        // still on the renderer are skipped by the update task until it has been applied
+        loaded.compileWorldSettings();
+        configManager = loaded;
+        
+        // Rebuild display names in case datapacks added structures or biomes
+        displayNames = DisplayNameTable.build();
+        
+        // Retake permission snapshots on next use (reload is the usual step after editing groups)
+        for (PlayerState state : playerStates.values()) {
+            state.permissions = 0;
+        }
+        
+        // Drop cached biome results - the search radius or tolerance may have changed
+        biomeSearchCache.clear();
+        
+        // Confirm reload success
+        sender.sendMessage(Component.text("EnhancedCompass configuration reloaded!", NamedTextColor.GREEN));
+    }
+    
+    /**
+     * Sends cache and search counters to an admin (/enhancedcompass stats).
+     * 
+     * @param sender The command sender (player or console)
+     */
+    private void sendStats(CommandSender sender) {
+        sender.sendMessage(Component.text("=== EnhancedCompass Statistics ===", NamedTextColor.GOLD, TextDecoration.BOLD));
+        
+        // Biome cache - hit rate shows whether the cache size and tolerance fit the server
+        long hits = biomeSearchCache.getHits();
+        long misses = biomeSearchCache.getMisses();
+        long lookups = hits + misses;
+        sender.sendMessage(Component.text("Biome cache: ", NamedTextColor.YELLOW)
+            .append(Component.text(biomeSearchCache.size() + " entries, " + hits + " hits, " + misses + " misses (" +
+                                   (lookups == 0 ? 0 : hits * 100 / lookups) + "% hit rate)", NamedTextColor.GRAY)));
+        
+        // Boss bar title packets - skipped updates are packets the render check saved
+        long sent = bossBarUpdatesSent;
+        long skipped = bossBarUpdatesSkipped;
+        long updates = sent + skipped;
+        sender.sendMessage(Component.text("Boss bar updates: ", NamedTextColor.YELLOW)
+            .append(Component.text(sent + " sent, " + skipped + " skipped (" +
+                                   (updates == 0 ? 0 : skipped * 100 / updates) + "% of packets saved), " +
+                                   bossBarUpdatesDeferred + " deferred by the per-tick limit", NamedTextColor.GRAY)));
+    }
+    
+    /**
+     * Measures the allocation and time of a steady-state boss bar refresh (/enhancedcompass benchmark).
+     * 
+     * <p><b>How It Works:</b></p>
+     * <ol>
+     *   <li>Picks a compass holder with a target: the sender if they qualify, otherwise any holder</li>
+     *   <li>Runs BENCHMARK_WARMUP refreshes so the JIT has compiled the path</li>
+     *   <li>Runs BENCHMARK_ITERATIONS refreshes of the real updateBossBar() path, reading the
+     *       thread's allocated byte count (com.sun.management.ThreadMXBean) before and after</li>
+     * </ol>
+     * The player doesn't move during the loop, so every measured refresh takes the
+     * unchanged-distance path that almost all real refreshes take. Expected result: 0 bytes.
+     * The boss bar counters are restored afterwards so /enhancedcompass stats isn't skewed.
+     * 
+     * <p><b>Render Mode:</b> Only available with boss-bar.render-mode: main. In async mode the
+     * render fields belong to the BossBarRenderer worker, and the main thread must not write them.</p>
+     * 
+     * @param sender The command sender (player or console)
+     */
+    private void runRefreshBenchmark(CommandSender sender) {
+        if (configManager.isBossBarAsyncRender()) {
+            sender.sendMessage(Component.text("The benchmark measures main-thread refreshes - set boss-bar.render-mode to main and reload first.",
+                                              NamedTextColor.YELLOW));
+            return;
+        }
+        
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean) ||
+            !((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            sender.sendMessage(Component.text("This JVM can't measure per-thread allocation.", NamedTextColor.RED));
+            return;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        
+        // Find a holder with a target - the benchmark uses their real state and boss bar
+        Player subject = null;
+        if (sender instanceof Player && compassHolderTracker.getActiveHolders().contains(((Player) sender).getUniqueId()) &&
+            getPlayerTarget(((Player) sender).getUniqueId()) != null) {
+            subject = (Player) sender;
+        } else {
+            for (UUID uuid : compassHolderTracker.getActiveHolders()) {
+                Player holder = Bukkit.getPlayer(uuid);
+                if (holder != null && getPlayerTarget(uuid) != null) {
+                    subject = holder;
+                    break;
+                }
+            }
+        }
+        if (subject == null) {
+            sender.sendMessage(Component.text("Nobody is holding a compass with a target set - hold one and try again.", NamedTextColor.YELLOW));
+            return;
+        }
+        CompassTarget target = getPlayerTarget(subject.getUniqueId());
+        if (playerStates.get(subject.getUniqueId()).renderInFlight) {
+            sender.sendMessage(Component.text("Boss bars are still being rendered after the switch to render-mode main - try again in a moment.",
+                                              NamedTextColor.YELLOW));
+            return;
+        }
+        
+        long savedSent = bossBarUpdatesSent;
+        long savedSkipped = bossBarUpdatesSkipped;
+        for (int i = 0; i < BENCHMARK_WARMUP; i++) {
+            updateBossBar(subject, target);
+        }
+        
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            updateBossBar(subject, target);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long bytesAfter = allocationBean.getThreadAllocatedBytes(threadId);
+        
+        bossBarUpdatesSent = savedSent;
+        bossBarUpdatesSkipped = savedSkipped;
+        
+        long allocated = bytesAfter - bytesBefore;
+        sender.sendMessage(Component.text("=== Boss Bar Refresh Benchmark ===", NamedTextColor.GOLD, TextDecoration.BOLD));
+        sender.sendMessage(Component.text("Player: ", NamedTextColor.YELLOW)
+            .append(Component.text(subject.getName() + " → " + formatStructureName(target.structureType), NamedTextColor.GRAY)));
+        sender.sendMessage(Component.text("Refreshes: ", NamedTextColor.YELLOW)
+            .append(Component.text(BENCHMARK_ITERATIONS + " (after " + BENCHMARK_WARMUP + " warm-up)", NamedTextColor.GRAY)));
+        sender.sendMessage(Component.text("Allocated: ", NamedTextColor.YELLOW)
+            .append(Component.text(allocated + " bytes total, " + String.format("%.3f", (double) allocated / BENCHMARK_ITERATIONS) +
+                                   " bytes per refresh", allocated / BENCHMARK_ITERATIONS == 0 ? NamedTextColor.GREEN : NamedTextColor.RED)));
+        sender.sendMessage(Component.text("Time: ", NamedTextColor.YELLOW)
+            .append(Component.text(String.format("%.1f", (double) elapsedNanos / BENCHMARK_ITERATIONS) + " ns per refresh", NamedTextColor.GRAY)));
+    }
+    
+    /**
+     * Handles /enhancedcompass index subcommands.
+     * 
+     * <p><b>Usage:</b></p>
+     * <ul>
+     *   <li>/enhancedcompass index &lt;world&gt; &lt;radius&gt; - Start pre-indexing around the world's spawn (radius in chunks)</li>
+     *   <li>/enhancedcompass index status - Show progress of the running job</li>
+     *   <li>/enhancedcompass index stop - Stop the running job and forget its progress</li>
+     * </ul>
+     * 
+     * <p><b>Permission:</b> Console always allowed, players need enhancedcompass.index.</p>
+     * 
+     * @param sender The command sender (player or console)
+     * @param args Command arguments, args[0] is "index"
+     */
+    private void handleIndexCommand(CommandSender sender, String[] args) {
+        // Permission check only for players (console always has permission)
+        if (sender instanceof Player && !sender.hasPermission("enhancedcompass.index")) {
+            sender.sendMessage(Component.text("You don't have permission to pre-index structures.", NamedTextColor.RED));
+            return;
+        }
+        
+        // STATUS - report progress of the running job
+        if (args.length == 2 && args[1].equalsIgnoreCase("status")) {
+            if (!structurePreIndexer.isRunning()) {
+                sender.sendMessage(Component.text("No structure pre-indexing job is running.", NamedTextColor.YELLOW));
+            } else {
+                sender.sendMessage(Component.text(structurePreIndexer.describeProgress(), NamedTextColor.GREEN));
+            }
+            return;
+        }
+        
+        // STOP - cancel the running job and delete its saved progress
+        if (args.length == 2 && args[1].equalsIgnoreCase("stop")) {
+            if (!structurePreIndexer.isRunning()) {
+                sender.sendMessage(Component.text("No structure pre-indexing job is running.", NamedTextColor.YELLOW));
+            } else {
+                structurePreIndexer.stop();
+                sender.sendMessage(Component.text("Structure pre-indexing stopped.", NamedTextColor.GREEN));
+            }
+            return;
+        }
+        
+        // START - validate arguments
+        if (args.length != 3) {
+            sender.sendMessage(Component.text("Usage: /enhancedcompass index <world> <radius>|status|stop", NamedTextColor.RED));
+            return;
+        }
+        
+        World world = Bukkit.getWorld(args[1]);
+        if (world == null) {
+            sender.sendMessage(Component.text("Unknown world: " + args[1], NamedTextColor.RED));
+            return;
+        }
+        
+        int radius;
+        try {
+            radius = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(Component.text("Radius must be a whole number of chunks.", NamedTextColor.RED));
+            return;
+        }
+        if (radius <= 0) {
+            sender.sendMessage(Component.text("Radius must be at least 1 chunk.", NamedTextColor.RED));
+            return;
+        }
+        
+        // Pre-indexing only makes sense if searches actually use the index
+        if (!configManager.isStructureIndexEnabled()) {
+            sender.sendMessage(Component.text("The structure index is disabled in config.yml (structure-index.enabled).", NamedTextColor.RED));
+            return;
+        }
+        
+        // Only one job at a time - the index is shared, so two jobs would just compete for tick time
+        if (structurePreIndexer.isRunning()) {
+            sender.sendMessage(Component.text("A pre-indexing job is already running. Use /enhancedcompass index stop first.", NamedTextColor.RED));
+            return;
+        }
+        
+        if (configManager.getEnabledStructures(world).isEmpty()) {
+            sender.sendMessage(Component.text("No structures are enabled in that world type.", NamedTextColor.RED));
+            return;
+        }
+        
+        UUID owner = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
+        structurePreIndexer.start(world, radius, owner);
+        sender.sendMessage(Component.text("Started pre-indexing structures within " + (radius * 16) + " blocks of " +
+                                          world.getName() + "'s spawn.", NamedTextColor.GREEN));
+    }
+    
+    /**
+     * Tells a player that their previous search has not finished yet.
+     * Used by every search command so repeated commands don't pile up in the pipeline.
+     * 
+     * @param player The player who tried to start another search
+     */
+    private void sendSearchInProgress(Player player) {
+        player.sendMessage(Component.text("You already have a search in progress. Please wait for it to finish.", NamedTextColor.YELLOW));
+    }
+    
+    /**
+     * Applies the outcome of a finished structure search to the requesting player.
+     * Called by the StructureSearchPipeline, always on the main server thread.
+     * 
+     * <p><b>Apply Steps:</b></p>
+     * <ol>
+     *   <li>Release the player's "search in progress" slot</li>
+     *   <li>Drop the result if the player disconnected during the search</li>
+     *   <li>Report "not found" using the message that matches the search kind</li>
+     *   <li>Otherwise set the vanilla compass target, store the CompassTarget and save it</li>
+     * </ol>
+     * 
+     * <p><b>Distance:</b> The reported distance is measured from the player's location
+     * at apply time, since the player may have moved while the search was running.</p>
+     * 
+     * @param request The finished search request, including its best hit (may be null)
+     */
+    private void completeStructureSearch(StructureSearchRequest request) {
+        // Always release the in-progress slot first so the player can search again
+        structureSearchPipeline.end(request.playerId);
+        
+        // Verify player is still online before touching their state
+        Player player = Bukkit.getPlayer(request.playerId);
+        if (player == null) {
+            return;  // Player disconnected during search
+        }
+        
+        SearchHit hit = request.getBestHit();
+        
+        // Check if anything was found within search radius
+        if (hit == null) {
             // Not found - inform player with search radius in blocks (radius * 16)
             // 1 chunk = 16 blocks, so multiply radius by 16 for block distance
-            player.sendMessage(Component.text("No " + formatStructureName(finalStructureInput) + 
-                             " found within " + (searchRadius * 16) + " blocks.", NamedTextColor.RED));
-            return true;
+            int radiusBlocks = request.searchRadius * 16;
+            switch (request.kind) {
+                case VILLAGE -> player.sendMessage(Component.text("No villages found within " + radiusBlocks + " blocks.", NamedTextColor.RED));
+                case ANYTHING -> player.sendMessage(Component.text("No structures found within " + radiusBlocks + " blocks.", NamedTextColor.RED));
+                default -> player.sendMessage(Component.text("No " + formatStructureName(request.requestedType) + 
+                                 " found within " + radiusBlocks + " blocks.", NamedTextColor.RED));
+            }
+            return;
         }
         
-        // Extract location from search result
-        Location structureLocation = structureResult.getLocation();
-        
         // Set vanilla compass target to the structure location
         // This makes the compass needle point towards the structure
-        player.setCompassTarget(structureLocation);
+        player.setCompassTarget(hit.location);
         
         // Store the target for boss bar updates
         // This allows the update task to show real-time distance in boss bar
-        CompassTarget target = new CompassTarget(finalStructureInput, structureLocation);
-        playerTargets.put(player.getUniqueId(), target);
+        CompassTarget target = new CompassTarget(hit.structureType, hit.location);
+        setPlayerTarget(player.getUniqueId(), target);
+        
+        // Calculate distance for display from where the player is standing now
+        double distance = player.getWorld().equals(hit.location.getWorld())
+            ? player.getLocation().distance(hit.location)
+            : hit.distance;
         
-        // Calculate initial distance for display
-        // This is a 3D Euclidean distance in blocks
-        double distance = player.getLocation().distance(structureLocation);
+        // Generic searches also announce which structure type won
+        if (request.kind != SearchKind.SINGLE) {
+            player.sendMessage(Component.text("Found " + formatStructureName(hit.structureType) + "!", NamedTextColor.GREEN));
+        }
         
         // Send success message with structure name in formatted Title Case
-        player.sendMessage(Component.text("Compass now pointing to " + formatStructureName(finalStructureInput) + "!", NamedTextColor.GREEN));
+        player.sendMessage(Component.text("Compass now pointing to " + formatStructureName(hit.structureType) + "!", NamedTextColor.GREEN));
         
         // Send distance message with formatted block count
         // String.format("%.0f", distance) rounds to nearest whole number
         player.sendMessage(Component.text("Distance: ", NamedTextColor.GREEN)
             .append(Component.text(String.format("%.0f", distance) + " blocks", NamedTextColor.YELLOW)));
         
+        // Report where the hit came from: the structure index, or which expanding ring found it
+        if (hit.ring < 0) {
+            player.sendMessage(Component.text("Location found in the structure index", NamedTextColor.GRAY));
+        } else if (request.ringSchedule.length > 1) {
+            int ringRadiusBlocks = request.ringSchedule[hit.ring] * 16;
+            player.sendMessage(Component.text("Found in search ring " + (hit.ring + 1) + " of " + request.ringSchedule.length +
+                                              " (within " + ringRadiusBlocks + " blocks)", NamedTextColor.GRAY));
+        }
+        
         // Save the player's target to disk for persistence across server restarts
         savePlayerTarget(player, target);
-        
-        return true;
     }
     
     /**
@@ -1141,7 +2155,10 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      * 
      * <p><b>Performance Considerations:</b></p>
      * Tab completion is called frequently as players type, so this method needs to be fast.
-     * Uses Java streams for efficient filtering and sorting.
+     * Structure and biome completions are binary-search ranges over CompletionIndexes built
+     * on config load, returned as shared immutable lists (nothing is copied or sorted here).
+     * The index arguments (world names, status, stop) come from a CompletionIndex rebuilt
+     * whenever the loaded worlds change.
      * 
      * @param sender The command sender (player or console)
      * @param command The command object (always "enhancedcompass")
@@ -1151,107 +2168,78 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      */
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
-        // Create list to hold completion suggestions
-        List<String> completions = new ArrayList<>();
-        
         // Only provide tab completion for first argument (subcommand or structure name)
         // We don't have multi-argument commands that need further completion
         if (args.length == 1) {
-            // Add standard subcommands that are always available
-            completions.add("help");      // Shows help menu
-            completions.add("current");   // Shows current target
-            completions.add("biome");     // Biome search subcommand
-            
-            // Add special generic structure searches
-            completions.add("village");   // Finds any village type
-            completions.add("anything");  // Finds any enabled structure
-            
-            // Add reload command only for authorized users
-            // Console (not a Player) or players with enhancedcompass.reload permission
-            if (!(sender instanceof Player) || sender.hasPermission("enhancedcompass.reload")) {
-                completions.add("reload");
-            }
-            
-            // Add structure type completions based on sender type
+            // Subcommands for the sender's permissions (reload, stats/benchmark and index are
+            // permission-gated) plus structure types, precomputed per world on config load
             if (sender instanceof Player) {
-                // PLAYER: Add only structure types enabled for their current world
+                // PLAYER: only structure types enabled for their current world
                 // This prevents suggesting structures that won't work in their dimension
                 Player player = (Player) sender;
-                
-                // Get enabled structures for player's current world environment
-                List<String> enabledStructures = configManager.getEnabledStructuresForEnvironment(player.getWorld().getEnvironment());
-                
-                // Convert to lowercase and add to completions
-                // Config stores in UPPER_CASE but commands use lowercase
-                completions.addAll(enabledStructures.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList()));
-            } else {
-                // CONSOLE: Add all available structure types from Bukkit Registry
-                // Console doesn't have a specific world, so show everything
-                Registry.STRUCTURE.forEach(structure -> {
-                    // Get the namespaced key and extract the structure name
-                    // e.g., "minecraft:ancient_city" → "ancient_city"
-                    completions.add(structure.getKey().getKey());
-                });
+                return configManager.getWorldSettings(player.getWorld())
+                    .completeStructures(completionTier(sender), args[0]);
             }
             
-            // Filter completions based on what user has typed so far
-            // Example: if they typed "anc", only show completions starting with "anc"
-            return completions.stream()
-                .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))  // Case-insensitive match
-                .sorted()  // Alphabetically sort for easier reading
-                .collect(Collectors.toList());  // Collect to list
+            // CONSOLE: all structure types from the registry
+            // Console doesn't have a specific world, so show everything
+            return configManager.completeConsoleStructures(args[0]);
         }
         
         // SECOND ARGUMENT TAB COMPLETION - only for "biome" subcommand
         // Provides biome name suggestions when first argument is "biome"
         if (args.length == 2 && args[0].equalsIgnoreCase("biome")) {
-            // Add biome type completions based on sender type
             if (sender instanceof Player) {
-                // PLAYER: Add only biome types enabled for their current world
-                // This prevents suggesting biomes that won't work in their dimension
+                // PLAYER: only biome types enabled for their current world
                 Player player = (Player) sender;
-                
-                // Get enabled biomes for player's current world environment
-                List<String> enabledBiomes = configManager.getEnabledBiomesForEnvironment(player.getWorld().getEnvironment());
-                
-                // Convert to lowercase and add to completions
-                // Config stores in UPPER_CASE but commands use lowercase
-                completions.addAll(enabledBiomes.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList()));
-            } else {
-                // CONSOLE: Add all available biome types from Bukkit Registry
-                // Console doesn't have a specific world, so show everything
-                Registry.BIOME.forEach(biome -> {
-                    // Get the namespaced key and extract the biome name
-                    // e.g., "minecraft:dark_forest" → "dark_forest"
-                    completions.add(biome.getKey().getKey());
-                });
+                return configManager.getWorldSettings(player.getWorld()).completeBiomes(args[1]);
             }
             
-            // Filter completions based on what user has typed so far
-            // Example: if they typed "dar", only show completions starting with "dar"
-            return completions.stream()
-                .filter(s -> s.toLowerCase().startsWith(args[1].toLowerCase()))  // Case-insensitive match
-                .sorted()  // Alphabetically sort for easier reading
-                .collect(Collectors.toList());  // Collect to list
+            // CONSOLE: all biome types from the registry
+            return configManager.completeConsoleBiomes(args[1]);
+        }
+        
+        // SECOND ARGUMENT TAB COMPLETION - for "index" subcommand
+        // Suggests loaded world names plus the status/stop actions
+        if (args.length == 2 && args[0].equalsIgnoreCase("index")
+                && hasCachedPermission(sender, PlayerState.PERMISSION_INDEX)) {
+            // Index rebuilt with the per-world settings (config load, world load/unload)
+            return configManager.completeIndexArguments(args[1]);
         }
         
         // Return empty list for arguments beyond the first (or second for biome)
         // We don't have any multi-argument commands that need completion beyond this
-        return completions;
+        return List.of();
     }
     
     /**
-     * Event handler called when a player disconnects from the server.
-     * Performs cleanup operations to prevent memory leaks and ensure data persistence.
+     * Gets the sender's tab completion tier: which permission-gated subcommands they see.
      * 
-     * <p><b>Cleanup Operations:</b></p>
-     * <ol>
-     *   <li>Remove and hide player's boss bar if active</li>
-     *   <li>Save player's current compass target to disk (redundant save for safety)</li>
+     * @param sender The sender (console always gets the highest tier)
+     * @return Index into SUBCOMMAND_TIERS
+     */
+    private int completionTier(CommandSender sender) {
+        int tier = 0;
+        if (hasCachedPermission(sender, PlayerState.PERMISSION_RELOAD)) {
+            tier |= 1;
+        }
+        if (hasCachedPermission(sender, PlayerState.PERMISSION_ADMIN)) {
+            tier |= 2;
+        }
+        if (hasCachedPermission(sender, PlayerState.PERMISSION_INDEX)) {
+            tier |= 4;
+        }
+        return tier;
+    }
+    
+    /**
+     * Event handler called when a player disconnects from the server.
+     * Performs cleanup operations to prevent memory leaks and ensure data persistence.
+     * 
+     * <p><b>Cleanup Operations:</b></p>
+     * <ol>
+     *   <li>Remove and hide player's boss bar if active</li>
+     *   <li>Save player's current compass target to disk (redundant save for safety)</li>
      * </ol>
      * 
      * <p><b>Data Persistence Strategy:</b></p>
@@ -1264,10 +2252,11 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      * target is set, but provides an extra safety net in case something went wrong.
      * 
      * <p><b>Note on Target Restoration:</b></p>
-     * While targets are saved here, they are NOT automatically restored when the player
-     * rejoins. The loadPlayerTarget() method exists for this purpose but is not currently
-     * connected to any join event. The playerTargets map entry is also NOT removed here,
-     * which is intentional - it allows any final boss bar cleanup to complete properly.
+     * Targets saved here are restored by onPlayerJoin() when the player rejoins (read back
+     * during pre-login, from the write-behind queue if the save hasn't been flushed yet).
+     * The playerStates entry is removed once the target is queued and the boss bar is back
+     * in the pool, so the map only holds online players instead of everyone seen since startup.
+     * Any preloaded target that was never applied (login failed after pre-login) is dropped.
      * 
      * <p><b>Boss Bar Cleanup:</b></p>
      * Boss bars must be explicitly removed when players quit to:
@@ -1288,24 +2277,187 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
         // This prevents memory leaks and ensures clean disconnect
         removeBossBar(player);
         
+        // Drop a preloaded target that was never applied
+        preloadedTargets.remove(player.getUniqueId());
+        
         // Retrieve the player's current compass target
-        CompassTarget target = playerTargets.get(player.getUniqueId());
+        CompassTarget target = getPlayerTarget(player.getUniqueId());
         
         // Save target to disk if player has one set
         // This ensures target persists for next login
         if (target != null) {
             savePlayerTarget(player, target);
         }
+        
+        // Target is queued and the bar is back in the pool - nothing left to keep for this player
+        playerStates.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Opens the player target store selected by persistence.storage.
+     * Runs on the storage thread (see PlayerTargetStorage), never on the main thread.
+     * 
+     * <p><b>Binary (default):</b> plugins/EnhancedCompass/targets.dat, one append-only file.</p>
+     * 
+     * <p><b>Mapped:</b> plugins/EnhancedCompass/targets.map, a memory-mapped hash table for
+     * large player counts. On first use it imports targets.dat if one exists.</p>
+     * 
+     * <p><b>SQLite:</b> plugins/EnhancedCompass/targets.db, an embedded database written in
+     * batched transactions. On first use it imports targets.dat if one exists.</p>
+     * 
+     * <p><b>YAML:</b> one playerdata/[uuid].yml file per player. Also used as a fallback
+     * if the selected store can't be opened.</p>
+     * 
+     * <p><b>Migration:</b> When a binary, mapped or SQLite store is created for the first time and
+     * there is nothing newer to import, existing playerdata/*.yml files are imported and the
+     * folder is renamed to playerdata-migrated (kept as a backup). Only brand new stores are
+     * filled, so old data can never overwrite newer targets. See migrateTargets() for how an
+     * interrupted migration is recovered.</p>
+     * 
+     * @return The store to read and write player targets
+     */
+    private PlayerTargetStore openPlayerTargetStore() {
+        String storage = configManager.getPersistenceStorage();
+        if (!storage.equals("yaml")) {
+            File binaryFile = new File(getDataFolder(), "targets.dat");
+            File storeFile = switch (storage) {
+                case "mapped" -> new File(getDataFolder(), "targets.map");
+                case "sqlite" -> new File(getDataFolder(), "targets.db");
+                default -> binaryFile;
+            };
+            try {
+                if (!storeFile.exists()) {
+                    if (storeFile != binaryFile && binaryFile.exists()) {
+                        // Switching from binary to mapped/sqlite - targets.dat is left in place
+                        BinaryTargetStore previous = new BinaryTargetStore(this, binaryFile);
+                        try {
+                            migrateTargets(storage, storeFile, previous, "targets.dat");
+                        } finally {
+                            previous.close();
+                        }
+                    } else if (playerDataFolder.isDirectory()) {
+                        migrateTargets(storage, storeFile, new YamlTargetStore(this, playerDataFolder), "playerdata/");
+                        
+                        // Keep the old files as a backup, out of the way
+                        File migratedFolder = new File(getDataFolder(), "playerdata-migrated");
+                        if (!playerDataFolder.renameTo(migratedFolder)) {
+                            getLogger().warning("Could not rename playerdata/ - it is no longer used and can be deleted");
+                        }
+                    }
+                }
+                return createTargetStore(storage, storeFile);
+            } catch (Exception e) {
+                getLogger().warning("Failed to open " + storeFile.getName() + ", using playerdata/*.yml files instead: " + e.getMessage());
+            }
+        }
+        
+        // Create the playerdata directory if it doesn't exist
+        // Individual player compass targets will be saved here as UUID.yml files
+        if (!playerDataFolder.exists()) {
+            playerDataFolder.mkdirs();
+        }
+        return new YamlTargetStore(this, playerDataFolder);
+    }
+    
+    /**
+     * Opens (or creates) a binary, mapped or SQLite store on the given file.
+     * 
+     * @param storage persistence.storage value ("binary", "mapped" or "sqlite")
+     * @param file The store file
+     * @return The opened store
+     * @throws IOException If the file can't be opened or isn't a target store
+     */
+    private PlayerTargetStore createTargetStore(String storage, File file) throws IOException {
+        return switch (storage) {
+            case "mapped" -> new MappedTargetStore(this, file);
+            case "sqlite" -> new SqliteTargetStore(this, file);
+            default -> new BinaryTargetStore(this, file);
+        };
+    }
+    
+    /**
+     * Builds a new store file from an older store (one-time migration).
+     * 
+     * <p><b>Crash Safety:</b></p>
+     * The new store is filled under a temporary name ([store file].migrating), forced to disk
+     * and closed, and only then moved to its real name in one atomic move. The real store file
+     * therefore exists only once it holds every migrated target - a crash or an error at any
+     * point before the move leaves no store file, and the next startup simply migrates again.
+     * Side files (the mapped store's .names file) are moved before the store file itself.
+     * 
+     * <p><b>Failure:</b> Every temporary file is deleted and the error is passed on.</p>
+     * 
+     * @param storage persistence.storage value of the new store
+     * @param storeFile Final location of the new store (must not exist yet)
+     * @param from Store to read
+     * @param sourceName Name of the source for log messages
+     * @throws IOException If the targets could not be written or moved into place
+     */
+    private void migrateTargets(String storage, File storeFile, PlayerTargetStore from, String sourceName) throws IOException {
+        File tempFile = new File(storeFile.getParentFile(), storeFile.getName() + ".migrating");
+        
+        // Left over from a migration that was interrupted
+        deleteMigrationFiles(tempFile);
+        
+        PlayerTargetStore to = null;
+        try {
+            getLogger().info("Migrating compass targets from " + sourceName + "...");
+            to = createTargetStore(storage, tempFile);
+            Map<UUID, StoredTarget> targets = from.loadAll();
+            to.saveAll(targets);
+            to.force();
+            to.close();
+            to = null;
+            
+            // Side files first - the store only counts as migrated once its main file is in place
+            File[] sideFiles = tempFile.getParentFile().listFiles(
+                (dir, name) -> name.startsWith(tempFile.getName()) && !name.equals(tempFile.getName()));
+            if (sideFiles != null) {
+                for (File sideFile : sideFiles) {
+                    String suffix = sideFile.getName().substring(tempFile.getName().length());
+                    Files.move(sideFile.toPath(), new File(storeFile.getParentFile(), storeFile.getName() + suffix).toPath(),
+                               StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            getLogger().info("Migrated " + targets.size() + " compass targets from " + sourceName);
+        } catch (IOException | RuntimeException e) {
+            if (to != null) {
+                to.close();
+            }
+            deleteMigrationFiles(tempFile);
+            throw e;
+        }
+    }
+    
+    /**
+     * Deletes a temporary migration store and its side files ([name].names, [name]-wal, ...).
+     * 
+     * @param tempFile The temporary store file
+     */
+    private void deleteMigrationFiles(File tempFile) {
+        File[] files = tempFile.getParentFile().listFiles((dir, name) -> name.startsWith(tempFile.getName()));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                getLogger().warning("Could not delete " + file.getName() + " - it is left over from an unfinished migration and can be deleted");
+            }
+        }
     }
     
     /**
-     * Saves a player's compass target to a YAML file in the playerdata directory.
-     * Each player gets their own file named UUID.yml containing their target information.
+     * Queues a player's compass target to be saved to the player target store.
+     * The store itself is written by PlayerTargetWriter on a background thread.
      * 
      * <p><b>File Location:</b></p>
-     * plugins/EnhancedCompass/playerdata/[player-uuid].yml
+     * plugins/EnhancedCompass/targets.dat (binary, default),
+     * plugins/EnhancedCompass/targets.map (persistence.storage: mapped),
+     * plugins/EnhancedCompass/targets.db (persistence.storage: sqlite) or
+     * plugins/EnhancedCompass/playerdata/[player-uuid].yml (persistence.storage: yaml)
      * 
-     * <p><b>File Structure:</b></p>
+     * <p><b>YAML File Structure:</b></p>
      * <pre>
      * structure-type: ANCIENT_CITY
      * world: world
@@ -1332,11 +2484,16 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      * The save on quit is a redundant backup for safety.
      * 
      * <p><b>Note on Loading:</b></p>
-     * Saved data can be loaded by loadPlayerTarget(), but this is NOT automatically
-     * called on player join. The infrastructure exists but is not wired up.
+     * Saved data is read by onAsyncPlayerPreLogin() (checking this queue first) and
+     * applied by onPlayerJoin().
+     * 
+     * <p><b>Write-Behind:</b></p>
+     * Saves are merged per player - if a player sets several targets (or sets one and
+     * quits) before the next flush, only the latest is written. The queue is flushed every
+     * persistence.flush-interval-seconds and in onDisable().
      * 
      * <p><b>Error Handling:</b></p>
-     * If save fails, a warning is logged but execution continues normally.
+     * If a write fails, a warning is logged but execution continues normally.
      * This prevents a save error from breaking compass functionality.
      * 
      * @param player The player whose target to save
@@ -1349,226 +2506,4373 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
             return;
         }
         
-        // Create file path: playerdata/[uuid].yml
-        File playerFile = new File(playerDataFolder, player.getUniqueId().toString() + ".yml");
-        
-        // Create new YAML configuration for saving
-        // This is a fresh config, not loaded from disk
-        org.bukkit.configuration.file.YamlConfiguration config = new org.bukkit.configuration.file.YamlConfiguration();
-        
-        // Set structure type (e.g., "ANCIENT_CITY")
-        config.set("structure-type", target.structureType);
+        // Queue the latest target - replaces any write still pending for this player
+        playerTargetWriter.enqueue(player.getUniqueId(), player.getName(), target);
+    }
+    
+    /**
+     * Holds logins back while the player target store is still being opened.
+     * 
+     * <p><b>Why:</b></p>
+     * The first start after switching storage migrates every old target on the storage thread,
+     * which can take a while on a large server. A player joining meanwhile would time out
+     * waiting for their target and join without it, so they are asked to reconnect instead.
+     * 
+     * <p><b>Priority:</b> LOW, so the login is denied before MONITOR listeners (including the
+     * target preload below) see it.</p>
+     * 
+     * @param event The AsyncPlayerPreLoginEvent for the connecting player
+     */
+    @EventHandler(priority = EventPriority.LOW)
+    public void onAsyncPlayerPreLoginGate(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED && !playerTargetStorage.isReady()) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                           Component.text("The server is still starting up, please reconnect in a moment", NamedTextColor.YELLOW));
+        }
+    }
+    
+    /**
+     * Reads a player's saved compass target before they finish logging in.
+     * Runs on the async pre-login thread, so file reads and YAML parsing never touch the tick.
+     * 
+     * <p><b>Lookup Order:</b></p>
+     * <ol>
+     *   <li>A save still waiting in the write-behind queue (player quit and rejoined before the flush)</li>
+     *   <li>The playerdata/[uuid].yml file</li>
+     * </ol>
+     * The result is parked in preloadedTargets until onPlayerJoin() applies it.
+     * 
+     * <p><b>Priority:</b> MONITOR, so logins denied by other plugins are skipped.</p>
+     * 
+     * @param event The AsyncPlayerPreLoginEvent for the connecting player
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Don't read anything for logins that won't go through
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
         
-        // Set world name (e.g., "world", "world_nether")
-        config.set("world", target.location.getWorld().getName());
+        UUID playerId = event.getUniqueId();
         
-        // Set coordinates with full double precision
-        config.set("x", target.location.getX());
-        config.set("y", target.location.getY());
-        config.set("z", target.location.getZ());
+        // A queued save is newer than what is in the store
+        StoredTarget stored = playerTargetWriter.getPending(playerId);
+        if (stored == null) {
+            try {
+                // Blocking is fine here - this thread exists so logins can wait on I/O
+                stored = playerTargetStorage.load(playerId, event.getName()).get(STORAGE_LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                getLogger().warning("Timed out loading compass target for player " + event.getName());
+            } catch (ExecutionException e) {
+                getLogger().warning("Failed to load compass target for player " + event.getName() + ": " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         
-        // Attempt to save configuration to file
-        try {
-            config.save(playerFile);
-        } catch (Exception e) {
-            // Log warning if save fails, but don't throw exception
-            // This prevents a save error from breaking gameplay
-            getLogger().warning("Failed to save compass target for player " + player.getName() + ": " + e.getMessage());
+        if (stored != null) {
+            preloadedTargets.put(playerId, stored);
         }
     }
     
     /**
-     * Loads a player's compass target from their saved data file.
-     * Designed to restore a player's last compass target when they join the server.
+     * Event handler called when a player changes world.
+     * Retakes the permission snapshot, since permission plugins can grant per world.
      * 
-     * <p><b>IMPORTANT - CURRENTLY UNUSED:</b></p>
-     * This method exists but is NOT currently being invoked anywhere in the plugin.
-     * There is no PlayerJoinEvent handler registered to call this method.
-     * To enable target restoration on player join, a PlayerJoinEvent handler would
-     * need to be added that calls this method. The method is fully implemented and
-     * ready to use - it just needs to be wired up to the join event.
+     * @param event The PlayerChangedWorldEvent containing the player
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        refreshPermissions(event.getPlayer());
+    }
+    
+    /**
+     * Event handler called when a world is loaded after startup (e.g. by a world manager plugin).
+     * Adds the world to the per-world settings snapshot.
+     * 
+     * @param event The WorldLoadEvent containing the world
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        configManager.compileWorldSettings();
+    }
+    
+    /**
+     * Event handler called when a world is about to be unloaded.
+     * Drops the world from the per-world settings snapshot once it is gone (next tick).
+     * 
+     * @param event The WorldUnloadEvent containing the world
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        Bukkit.getScheduler().runTask(this, () -> configManager.compileWorldSettings());
+    }
+    
+    /**
+     * Event handler called when a player joins the server.
+     * Restores the compass target read during pre-login (main thread, no file access).
      * 
-     * <p><b>Load Process:</b></p>
+     * <p><b>Restore Process:</b></p>
      * <ol>
-     *   <li>Check if player data file exists</li>
-     *   <li>Load YAML configuration from file</li>
-     *   <li>Extract structure type, world, and coordinates</li>
-     *   <li>Validate world still exists (may have been deleted)</li>
-     *   <li>Create Location object from coordinates</li>
-     *   <li>Create CompassTarget and store in memory</li>
-     *   <li>Set vanilla compass target</li>
+     *   <li>Use the target still in memory if the player rejoined without a restart,
+     *       otherwise the one preloaded by onAsyncPlayerPreLogin()</li>
+     *   <li>Validate the world still exists (may have been deleted)</li>
+     *   <li>Store the target for boss bar updates and set the vanilla compass target</li>
      *   <li>Notify player after 1 second delay</li>
      * </ol>
      * 
-     * <p><b>Error Handling:</b></p>
-     * <ul>
-     *   <li>No save file: silently return (player has no saved target)</li>
-     *   <li>World doesn't exist: log warning and return</li>
-     *   <li>Parse error: log warning and return</li>
-     * </ul>
-     * 
      * <p><b>Player Notification:</b></p>
      * A delayed notification (1 second after join) informs the player their
      * target was restored. Delay prevents message from being lost in join spam.
      * 
-     * <p><b>To Enable This Feature:</b></p>
-     * Add a PlayerJoinEvent handler to onEnable() that calls this method:
-     * <pre>
-     * {@literal @}EventHandler
-     * public void onPlayerJoin(PlayerJoinEvent event) {
-     *     loadPlayerTarget(event.getPlayer());
-     * }
-     * </pre>
-     * And import: org.bukkit.event.player.PlayerJoinEvent
-     * 
-     * @param player The player whose target to load
+     * @param event The PlayerJoinEvent containing the joining player
      */
-    private void loadPlayerTarget(Player player) {
-        // Create file path: playerdata/[uuid].yml
-        File playerFile = new File(playerDataFolder, player.getUniqueId().toString() + ".yml");
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
         
-        // Check if save file exists
-        if (!playerFile.exists()) {
-            // No saved target for this player - this is normal for new players
-            return;
-        }
+        // Fresh permission snapshot for this session (groups may have changed while offline)
+        refreshPermissions(player);
         
-        // Load YAML configuration from file
-        org.bukkit.configuration.file.YamlConfiguration config = org.bukkit.configuration.file.YamlConfiguration.loadConfiguration(playerFile);
+        // Always take the preloaded entry out so it can't go stale
+        StoredTarget stored = preloadedTargets.remove(player.getUniqueId());
         
-        // Attempt to parse and restore target
-        try {
-            // Extract structure type (e.g., "ANCIENT_CITY")
-            String structureType = config.getString("structure-type");
-            
-            // Extract world name (e.g., "world")
-            String worldName = config.getString("world");
-            
-            // Extract coordinates with full double precision
-            double x = config.getDouble("x");
-            double y = config.getDouble("y");
-            double z = config.getDouble("z");
+        // In-memory target wins - it is at least as new as anything on disk
+        CompassTarget target = getPlayerTarget(player.getUniqueId());
+        if (target == null) {
+            if (stored == null) {
+                return;  // Player has no saved target
+            }
             
             // Get world object from Bukkit
             // This may return null if world was deleted/renamed
-            org.bukkit.World world = Bukkit.getWorld(worldName);
-            
-            // Validate world exists
+            World world = Bukkit.getWorld(stored.worldName);
             if (world == null) {
-                // World doesn't exist anymore (deleted, renamed, or disabled)
-                // Log warning and abort load
-                getLogger().warning("Could not load compass target for " + player.getName() + ": world " + worldName + " not found");
+                getLogger().warning("Could not load compass target for " + player.getName() + ": world " + stored.worldName + " not found");
                 return;
             }
             
-            // Create Location object from saved coordinates
-            Location location = new Location(world, x, y, z);
-            
-            // Create CompassTarget object
-            CompassTarget target = new CompassTarget(structureType, location);
-            
             // Store target in memory for boss bar updates
-            playerTargets.put(player.getUniqueId(), target);
-            
-            // Set vanilla compass target so compass needle points correctly
-            player.setCompassTarget(location);
-            
-            // Schedule delayed notification to player
-            // Delay of 20 ticks (1 second) ensures message isn't lost in join spam
-            getServer().getScheduler().runTaskLater(this, () -> {
-                // Send notification with formatted structure name
+            target = new CompassTarget(stored.structureType, new Location(world, stored.x, stored.y, stored.z));
+            setPlayerTarget(player.getUniqueId(), target);
+        }
+        
+        // Set vanilla compass target so compass needle points correctly
+        player.setCompassTarget(target.location);
+        
+        // Schedule delayed notification to player
+        // Delay of 20 ticks (1 second) ensures message isn't lost in join spam
+        final String structureType = target.structureType;
+        getServer().getScheduler().runTaskLater(this, () -> {
+            if (player.isOnline()) {
                 player.sendMessage(Component.text("Your compass target has been restored: ", NamedTextColor.GREEN)
                     .append(Component.text(formatStructureName(structureType), NamedTextColor.AQUA)));
-            }, 20L);
-            
-        } catch (Exception e) {
-            // Failed to parse target file (corrupt file, wrong format, etc.)
-            // Log warning but don't throw exception - player can set a new target
-            getLogger().warning("Failed to load compass target for player " + player.getName() + ": " + e.getMessage());
+            }
+        }, 20L);
+    }
+    
+    /**
+     * Snapshot of a compass target as stored on disk.
+     * Holds the world name rather than the World so it can be written and read off the main thread.
+     */
+    private static class StoredTarget {
+        /** Player name, only used in log messages (not stored) */
+        final String playerName;
+        
+        /** Target type in UPPER_CASE format (structure or biome) */
+        final String structureType;
+        
+        /** Name of the target's world */
+        final String worldName;
+        
+        /** Target coordinates */
+        final double x;
+        final double y;
+        final double z;
+        
+        StoredTarget(String playerName, CompassTarget target) {
+            this(playerName, target.structureType, target.location.getWorld().getName(),
+                 target.location.getX(), target.location.getY(), target.location.getZ());
+        }
+        
+        StoredTarget(String playerName, String structureType, String worldName, double x, double y, double z) {
+            this.playerName = playerName;
+            this.structureType = structureType;
+            this.worldName = worldName;
+            this.x = x;
+            this.y = y;
+            this.z = z;
         }
     }
     
     /**
-     * Inner class representing a compass target.
-     * Stores both the target type name (structure or biome) and the exact location coordinates.
-     * This is a simple immutable data holder (all fields are final).
-     * 
-     * <p><b>Design Pattern:</b></p>
-     * This is a simple Data Transfer Object (DTO) with no business logic.
-     * Fields are final to ensure immutability and thread safety.
-     * 
-     * <p><b>Target Type Flexibility:</b></p>
-     * The structureType field can hold either:
-     * <ul>
-     *   <li>Structure types: "ANCIENT_CITY", "VILLAGE_PLAINS", "STRONGHOLD", etc.</li>
-     *   <li>Biome types: "DARK_FOREST", "CHERRY_GROVE", "MUSHROOM_FIELDS", etc.</li>
-     * </ul>
-     * The field name is "structureType" for historical reasons but it's used for both.
-     * 
-     * <p><b>Usage:</b></p>
-     * CompassTarget instances are created when:
-     * <ul>
-     *   <li>Player searches for a structure and one is found</li>
-     *   <li>Player searches for a biome and one is found</li>
-     *   <li>Player's saved target is loaded from disk (if loadPlayerTarget is called)</li>
-     * </ul>
-     * 
-     * CompassTarget instances are stored in:
-     * <ul>
-     *   <li>playerTargets map (UUID → CompassTarget) for boss bar updates</li>
-     *   <li>Player data YAML files (persisted to disk) for potential restoration</li>
-     * </ul>
-     * 
-     * <p><b>Thread Safety:</b></p>
-     * This class is immutable (all fields final, no setters), making it inherently thread-safe.
-     * Multiple threads can safely read the same CompassTarget instance without synchronization.
+     * Storage backend for player compass targets.
+     * Implementations must be safe to call from background threads (pre-login and flush task).
      */
-    private static class CompassTarget {
+    private interface PlayerTargetStore {
         /**
-         * The target type in UPPER_CASE format.
-         * Can be either a structure type (e.g., "ANCIENT_CITY", "VILLAGE_PLAINS")
-         * or a biome type (e.g., "DARK_FOREST", "CHERRY_GROVE").
+         * Reads a player's saved target.
          * 
-         * <p><b>Note:</b> The field is named "structureType" for historical reasons,
-         * but it stores both structure and biome type names.</p>
+         * @param playerId The player's UUID
+         * @param playerName The player's name (for log messages)
+         * @return The saved target, or null if there is none
+         */
+        StoredTarget load(UUID playerId, String playerName);
+        
+        /**
+         * Saves a batch of targets, replacing any earlier target of the same players.
          * 
-         * Used for display in boss bars, chat messages, and save files.
+         * @param targets Latest target per player
+         * @throws IOException If the batch could not be written (it will be retried)
          */
-        final String structureType;
+        void saveAll(Map<UUID, StoredTarget> targets) throws IOException;
         
         /**
-         * The exact location of the target (structure or biome) in the world.
-         * Includes world reference and X, Y, Z coordinates.
-         * Used for vanilla compass targeting (setCompassTarget) and distance calculations.
+         * Reads every saved target. Only used to migrate between stores.
+         * 
+         * @return All saved targets by player UUID
          */
-        final Location location;
+        Map<UUID, StoredTarget> loadAll();
         
         /**
-         * Constructor for creating a new compass target.
+         * Makes everything written so far durable on disk.
+         * Called every persistence.force-interval-seconds and from close().
+         */
+        void force();
+        
+        /**
+         * Releases any open files. Called once from onDisable() after the final flush.
+         */
+        void close();
+    }
+    
+    /**
+     * Player target store with one YAML file per player (playerdata/[uuid].yml).
+     * The original storage format, kept for persistence.storage: yaml and for migration.
+     */
+    private static class YamlTargetStore implements PlayerTargetStore {
+        /**
+         * Plugin instance. Logs unreadable player files and the progress of large loads.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Number of files between progress messages in loadAll() */
+        private static final int PROGRESS_INTERVAL = 10000;
+        
+        /** Directory holding one [uuid].yml file per player */
+        private final File folder;
+        
+        YamlTargetStore(EnhancedCompass plugin, File folder) {
+            this.plugin = plugin;
+            this.folder = folder;
+        }
+        
+        /**
+         * Reads a player's saved compass target from their data file.
          * 
-         * @param structureType The target type in UPPER_CASE format (structure or biome name)
-         * @param location The location of the target (structure or biome)
+         * <p><b>Error Handling:</b></p>
+         * <ul>
+         *   <li>No save file: return null (player has no saved target)</li>
+         *   <li>Parse error: log warning and return null</li>
+         * </ul>
          */
-        CompassTarget(String structureType, Location location) {
-            this.structureType = structureType;
-            this.location = location;
+        @Override
+        public StoredTarget load(UUID playerId, String playerName) {
+            // Create file path: playerdata/[uuid].yml
+            File playerFile = new File(folder, playerId.toString() + ".yml");
+            
+            // Check if save file exists
+            if (!playerFile.exists()) {
+                return null;
+            }
+            
+            try {
+                // Load YAML configuration from file
+                org.bukkit.configuration.file.YamlConfiguration config = org.bukkit.configuration.file.YamlConfiguration.loadConfiguration(playerFile);
+                
+                // Extract structure type (e.g., "ANCIENT_CITY") and world name (e.g., "world")
+                String structureType = config.getString("structure-type");
+                String worldName = config.getString("world");
+                if (structureType == null || worldName == null) {
+                    plugin.getLogger().warning("Failed to load compass target for player " + playerName + ": incomplete data file");
+                    return null;
+                }
+                
+                // Extract coordinates with full double precision
+                return new StoredTarget(playerName, structureType, worldName,
+                                        config.getDouble("x"), config.getDouble("y"), config.getDouble("z"));
+            } catch (Exception e) {
+                // Failed to parse target file (corrupt file, wrong format, etc.)
+                // Log warning but don't throw exception - player can set a new target
+                plugin.getLogger().warning("Failed to load compass target for player " + playerName + ": " + e.getMessage());
+                return null;
+            }
+        }
+        
+        /**
+         * Writes one file per player. A failed file is logged and skipped.
+         */
+        @Override
+        public void saveAll(Map<UUID, StoredTarget> targets) {
+            for (Map.Entry<UUID, StoredTarget> entry : targets.entrySet()) {
+                StoredTarget target = entry.getValue();
+                
+                // Create new YAML configuration for saving
+                // This is a fresh config, not loaded from disk
+                org.bukkit.configuration.file.YamlConfiguration config = new org.bukkit.configuration.file.YamlConfiguration();
+                config.set("structure-type", target.structureType);
+                config.set("world", target.worldName);
+                config.set("x", target.x);
+                config.set("y", target.y);
+                config.set("z", target.z);
+                
+                try {
+                    config.save(new File(folder, entry.getKey().toString() + ".yml"));
+                } catch (Exception e) {
+                    // Log warning if save fails, but don't throw exception
+                    // The next change for this player queues a fresh write anyway
+                    plugin.getLogger().warning("Failed to save compass target for player " + target.playerName + ": " + e.getMessage());
+                }
+            }
+        }
+        
+        /**
+         * Parses every player file, logging progress every PROGRESS_INTERVAL files
+         * (a large server can have tens of thousands of them).
+         */
+        @Override
+        public Map<UUID, StoredTarget> loadAll() {
+            Map<UUID, StoredTarget> targets = new HashMap<>();
+            File[] files = folder.listFiles((dir, name) -> name.endsWith(".yml"));
+            if (files == null) {
+                return targets;
+            }
+            int read = 0;
+            for (File playerFile : files) {
+                if (++read % PROGRESS_INTERVAL == 0) {
+                    plugin.getLogger().info("Read " + read + " of " + files.length + " player data files...");
+                }
+                UUID playerId;
+                try {
+                    playerId = UUID.fromString(playerFile.getName().substring(0, playerFile.getName().length() - 4));
+                } catch (IllegalArgumentException e) {
+                    continue;  // Not a player data file
+                }
+                StoredTarget target = load(playerId, playerId.toString());
+                if (target != null) {
+                    targets.put(playerId, target);
+                }
+            }
+            return targets;
+        }
+        
+        @Override
+        public void force() {
+            // Every file is complete once save() returns
+        }
+        
+        @Override
+        public void close() {
+            // Nothing kept open
         }
     }
     
     /**
-     * Inner class that manages plugin configuration from config.yml.
-     * Handles loading, parsing, and validation of all configuration values.
+     * Player target store holding every player in one append-only binary file (targets.dat).
      * 
-     * <p><b>Managed Configuration:</b></p>
+     * <p><b>File Format:</b></p>
+     * A 4-byte magic number followed by records. Every record starts with a kind byte:
      * <ul>
-     *   <li>search-radius: Search radius in chunks (default: 100)</li>
-     *   <li>blacklisted-worlds: List of world names where plugin is disabled</li>
-     *   <li>enabled-structures: Per-dimension structure whitelists</li>
-     *   <li>enabled-biomes: Per-dimension biome whitelists</li>
+     *   <li>TYPE_NAME: u16 length + UTF-8 bytes - defines the next structure/biome type id</li>
+     *   <li>WORLD_NAME: u16 length + UTF-8 bytes - defines the next world id</li>
+     *   <li>TARGET: UUID (2 longs), type id (int), world id (int), x, y, z (doubles) - 49 bytes</li>
      * </ul>
+     * Type and world names are interned: each is written once and targets refer to it by id,
+     * so a target costs 49 bytes however long its names are.
      * 
-     * <p><b>Config Structure Example:</b></p>
-     * <pre>
+     * <p><b>Updates:</b></p>
+     * Saving never rewrites data in place. New TARGET records are appended and the in-memory
+     * offset index (UUID → file offset of the latest record) moves to them. Older records for
+     * the same player become garbage.
+     * 
+     * <p><b>Compaction:</b></p>
+     * After a save, if the file is larger than 64 KB and more than half of its TARGET records
+     * are garbage, the live records are rewritten to a temporary file which then replaces
+     * targets.dat in one atomic move.
+     * 
+     * <p><b>Crash Safety:</b></p>
+     * A batch is written with a single write at the end of the file. If the server dies mid-write,
+     * the partial record at the end is detected when the file is opened and cut off. A file
+     * shorter than its header is started over; a file with the wrong magic is refused rather
+     * than appended to.
+     * 
+     * <p><b>Threading:</b> All public methods are synchronized.</p>
+     */
+    private static class BinaryTargetStore implements PlayerTargetStore {
+        /** File magic: "ECT1" */
+        private static final int MAGIC = 0x45435431;
+        
+        /** Record kinds */
+        private static final byte RECORD_TYPE_NAME = 1;
+        private static final byte RECORD_WORLD_NAME = 2;
+        private static final byte RECORD_TARGET = 3;
+        
+        /** Size of a TARGET record: kind + UUID + type id + world id + 3 doubles */
+        private static final int TARGET_RECORD_SIZE = 1 + 16 + 4 + 4 + 24;
+        
+        /** Files smaller than this are never compacted */
+        private static final long COMPACT_MIN_BYTES = 64 * 1024;
+        
+        /**
+         * Plugin instance. Logs failed loads and the recovery, compaction and sync of targets.dat.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** The store file (plugins/EnhancedCompass/targets.dat) */
+        private final File file;
+        
+        /** Open handle on the store file */
+        private RandomAccessFile data;
+        
+        /** File offset of each player's latest TARGET record */
+        private final HashMap<UUID, Long> offsets = new HashMap<>();
+        
+        /** Interned type names by id, and ids by name */
+        private final List<String> typeNames = new ArrayList<>();
+        private final HashMap<String, Integer> typeIds = new HashMap<>();
+        
+        /** Interned world names by id, and ids by name */
+        private final List<String> worldNames = new ArrayList<>();
+        private final HashMap<String, Integer> worldIds = new HashMap<>();
+        
+        /** Number of TARGET records in the file, live or not */
+        private int targetRecords;
+        
+        /**
+         * Opens (or creates) the store and builds the offset index.
+         * 
+         * @throws IOException If the file can't be opened or isn't a target store
+         */
+        BinaryTargetStore(EnhancedCompass plugin, File file) throws IOException {
+            this.plugin = plugin;
+            this.file = file;
+            open();
+        }
+        
+        /**
+         * Opens the file and scans it once to rebuild the offset index and name tables.
+         */
+        private void open() throws IOException {
+            offsets.clear();
+            typeNames.clear();
+            typeIds.clear();
+            worldNames.clear();
+            worldIds.clear();
+            targetRecords = 0;
+            
+            file.getParentFile().mkdirs();
+            data = new RandomAccessFile(file, "rw");
+            if (data.length() < 4) {
+                // New file, or one cut off before its header was complete - there is nothing to keep
+                if (data.length() > 0) {
+                    plugin.getLogger().warning("targets.dat ended inside its header, starting it over");
+                    data.setLength(0);
+                }
+                data.writeInt(MAGIC);
+                return;
+            }
+            
+            // Never append records to a file that isn't ours
+            if (data.readInt() != MAGIC) {
+                data.close();
+                data = null;
+                throw new IOException(file.getName() + " is not an EnhancedCompass target store");
+            }
+            
+            // Scan with a buffered stream - far fewer system calls than RandomAccessFile reads
+            long position = 4;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                in.skipNBytes(4);  // Header checked above
+                
+                while (true) {
+                    int kind = in.read();
+                    if (kind == -1) {
+                        break;  // Clean end of file
+                    }
+                    
+                    if (kind == RECORD_TYPE_NAME || kind == RECORD_WORLD_NAME) {
+                        byte[] bytes = new byte[in.readUnsignedShort()];
+                        in.readFully(bytes);
+                        String name = new String(bytes, StandardCharsets.UTF_8);
+                        if (kind == RECORD_TYPE_NAME) {
+                            typeIds.put(name, typeNames.size());
+                            typeNames.add(name);
+                        } else {
+                            worldIds.put(name, worldNames.size());
+                            worldNames.add(name);
+                        }
+                        position += 3 + bytes.length;
+                    } else if (kind == RECORD_TARGET) {
+                        UUID playerId = new UUID(in.readLong(), in.readLong());
+                        in.skipNBytes(TARGET_RECORD_SIZE - 17);
+                        offsets.put(playerId, position);
+                        targetRecords++;
+                        position += TARGET_RECORD_SIZE;
+                    } else {
+                        throw new IOException("unknown record kind " + kind + " at offset " + position);
+                    }
+                }
+            } catch (EOFException e) {
+                // Partial record from an interrupted write - cut it off
+                plugin.getLogger().warning("targets.dat ended in a partial record, truncating to " + position + " bytes");
+                data.setLength(position);
+            } catch (IOException e) {
+                // Unreadable data after the last good record - keep what was read
+                plugin.getLogger().warning("targets.dat is damaged (" + e.getMessage() + "), truncating to " + position + " bytes");
+                data.setLength(position);
+            }
+        }
+        
+        @Override
+        public synchronized StoredTarget load(UUID playerId, String playerName) {
+            Long offset = offsets.get(playerId);
+            if (offset == null || data == null) {
+                return null;
+            }
+            
+            try {
+                byte[] record = new byte[TARGET_RECORD_SIZE];
+                data.seek(offset);
+                data.readFully(record);
+                
+                // Skip kind byte and UUID - the offset index already identified the record
+                ByteBuffer buffer = ByteBuffer.wrap(record, 17, TARGET_RECORD_SIZE - 17);
+                String structureType = typeNames.get(buffer.getInt());
+                String worldName = worldNames.get(buffer.getInt());
+                return new StoredTarget(playerName, structureType, worldName,
+                                        buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to load compass target for player " + playerName + ": " + e.getMessage());
+                return null;
+            }
+        }
+        
+        /**
+         * Appends the batch as a single write, then compacts if the file is mostly garbage.
+         */
+        @Override
+        public synchronized void saveAll(Map<UUID, StoredTarget> targets) throws IOException {
+            if (targets.isEmpty()) {
+                return;
+            }
+            if (data == null) {
+                throw new IOException("target store is closed");
+            }
+            
+            // Build the whole batch in memory, interning new names as they come up
+            long base = data.length();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(targets.size() * TARGET_RECORD_SIZE);
+            DataOutputStream out = new DataOutputStream(buffer);
+            Map<UUID, Long> newOffsets = new HashMap<>();
+            for (Map.Entry<UUID, StoredTarget> entry : targets.entrySet()) {
+                StoredTarget target = entry.getValue();
+                int typeId = intern(target.structureType, RECORD_TYPE_NAME, typeNames, typeIds, out);
+                int worldId = intern(target.worldName, RECORD_WORLD_NAME, worldNames, worldIds, out);
+                
+                newOffsets.put(entry.getKey(), base + out.size());
+                out.writeByte(RECORD_TARGET);
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeInt(typeId);
+                out.writeInt(worldId);
+                out.writeDouble(target.x);
+                out.writeDouble(target.y);
+                out.writeDouble(target.z);
+            }
+            
+            try {
+                data.seek(base);
+                data.write(buffer.toByteArray());
+            } catch (IOException e) {
+                // Names interned above may not be on disk - rebuild tables from the file
+                data.close();
+                open();
+                throw e;
+            }
+            
+            offsets.putAll(newOffsets);
+            targetRecords += newOffsets.size();
+            
+            if (data.length() > COMPACT_MIN_BYTES && targetRecords > offsets.size() * 2) {
+                compact();
+            }
+        }
+        
+        /**
+         * Returns the id of a name, appending a name record to the batch the first time it is seen.
+         */
+        private static int intern(String name, byte kind, List<String> names, Map<String, Integer> ids,
+                                  DataOutputStream out) throws IOException {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(kind);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+            ids.put(name, names.size());
+            names.add(name);
+            return names.size() - 1;
+        }
+        
+        /**
+         * Rewrites the file with only the latest record of each player.
+         * Failures leave the current file untouched.
+         */
+        private void compact() {
+            long before = 0;
+            boolean replaced = false;
+            File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+            try {
+                before = data.length();
+                
+                // Read every live record before touching anything
+                Map<UUID, StoredTarget> live = loadAll();
+                
+                // Write header, names and targets to the temporary file
+                List<String> newTypeNames = new ArrayList<>();
+                HashMap<String, Integer> newTypeIds = new HashMap<>();
+                List<String> newWorldNames = new ArrayList<>();
+                HashMap<String, Integer> newWorldIds = new HashMap<>();
+                try (FileOutputStream fileOut = new FileOutputStream(tempFile);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                    out.writeInt(MAGIC);
+                    for (Map.Entry<UUID, StoredTarget> entry : live.entrySet()) {
+                        StoredTarget target = entry.getValue();
+                        int typeId = intern(target.structureType, RECORD_TYPE_NAME, newTypeNames, newTypeIds, out);
+                        int worldId = intern(target.worldName, RECORD_WORLD_NAME, newWorldNames, newWorldIds, out);
+                        out.writeByte(RECORD_TARGET);
+                        out.writeLong(entry.getKey().getMostSignificantBits());
+                        out.writeLong(entry.getKey().getLeastSignificantBits());
+                        out.writeInt(typeId);
+                        out.writeInt(worldId);
+                        out.writeDouble(target.x);
+                        out.writeDouble(target.y);
+                        out.writeDouble(target.z);
+                    }
+                    out.flush();
+                    fileOut.getFD().sync();
+                }
+                
+                // Swap the files and re-open
+                data.close();
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                replaced = true;
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to compact targets.dat: " + e.getMessage());
+                tempFile.delete();
+            }
+            
+            // Re-open whichever file is in place now
+            try {
+                if (!data.getFD().valid()) {
+                    open();
+                }
+                if (replaced) {
+                    plugin.getLogger().info("Compacted targets.dat from " + before + " to " + data.length() + " bytes");
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to re-open targets.dat after compaction: " + e.getMessage());
+                data = null;
+            }
+        }
+        
+        @Override
+        public synchronized Map<UUID, StoredTarget> loadAll() {
+            Map<UUID, StoredTarget> targets = new HashMap<>();
+            for (UUID playerId : offsets.keySet()) {
+                StoredTarget target = load(playerId, playerId.toString());
+                if (target != null) {
+                    targets.put(playerId, target);
+                }
+            }
+            return targets;
+        }
+        
+        @Override
+        public synchronized void force() {
+            if (data == null) {
+                return;
+            }
+            try {
+                data.getChannel().force(false);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to sync targets.dat: " + e.getMessage());
+            }
+        }
+        
+        @Override
+        public synchronized void close() {
+            if (data == null) {
+                return;
+            }
+            force();
+            try {
+                data.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to close targets.dat: " + e.getMessage());
+            }
+            data = null;
+        }
+    }
+    
+    /**
+     * Player target store backed by a memory-mapped hash table file (targets.map).
+     * 
+     * <p><b>File Format:</b></p>
+     * A 64-byte header (magic, version, capacity, count) followed by capacity fixed 48-byte slots:
+     * UUID (2 longs), type id (int), world id (int), x, y, z (doubles). A slot whose UUID is
+     * all zeros is empty. Type and world names are interned in a small sidecar text file
+     * (targets.map.names), one "T" or "W" prefixed name per line, ids in file order.
+     * 
+     * <p><b>Lookups and Writes:</b></p>
+     * The slot table is an open-addressing hash table keyed by a mix of the UUID bits, with
+     * linear probing. The whole file is mapped with FileChannel.map(), so after the OS has paged
+     * it in, a lookup on join is a few memory reads and a save is a few memory writes - no
+     * system calls and no parsing. The table grows (doubling, through a temporary file and an
+     * atomic move) before it gets more than 70% full.
+     * 
+     * <p><b>Durability:</b></p>
+     * Writes land in the page cache immediately and are forced to disk by force(), which the
+     * plugin calls every persistence.force-interval-seconds and on shutdown. The names file is
+     * written synchronously when a new name appears (rare), so a slot never refers to an
+     * unknown name.
+     * 
+     * <p><b>Threading:</b> All public methods are synchronized.</p>
+     */
+    private static class MappedTargetStore implements PlayerTargetStore {
+        /** File magic: "ECM1" */
+        private static final int MAGIC = 0x45434D31;
+        
+        /** File format version */
+        private static final int VERSION = 1;
+        
+        /** Header size; slots start here */
+        private static final int HEADER_SIZE = 64;
+        
+        /** Size of one slot: UUID + type id + world id + 3 doubles */
+        private static final int SLOT_SIZE = 16 + 4 + 4 + 24;
+        
+        /** Slot count of a new file (3 MB) - always a power of two */
+        private static final int INITIAL_CAPACITY = 65536;
+        
+        /** Header field offsets */
+        private static final int HEADER_CAPACITY = 8;
+        private static final int HEADER_COUNT = 12;
+        
+        /**
+         * Plugin instance. Logs unknown names in records, file growth and close failures of targets.map.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** The table file (plugins/EnhancedCompass/targets.map) */
+        private final File file;
+        
+        /** The interned names file (plugins/EnhancedCompass/targets.map.names) */
+        private final File namesFile;
+        
+        /** Open channel and mapping of the table file, null once closed */
+        private FileChannel channel;
+        private MappedByteBuffer table;
+        
+        /** Number of slots (power of two) and used slots */
+        private int capacity;
+        private int count;
+        
+        /** Interned type names by id, and ids by name */
+        private final List<String> typeNames = new ArrayList<>();
+        private final HashMap<String, Integer> typeIds = new HashMap<>();
+        
+        /** Interned world names by id, and ids by name */
+        private final List<String> worldNames = new ArrayList<>();
+        private final HashMap<String, Integer> worldIds = new HashMap<>();
+        
+        /** Whether the mapping has writes that force() hasn't synced yet */
+        private boolean dirty;
+        
+        /**
+         * Opens (or creates) the table and reads the names file.
+         * 
+         * @throws IOException If the files can't be opened or aren't a target table
+         */
+        MappedTargetStore(EnhancedCompass plugin, File file) throws IOException {
+            this.plugin = plugin;
+            this.file = file;
+            this.namesFile = new File(file.getParentFile(), file.getName() + ".names");
+            
+            file.getParentFile().mkdirs();
+            if (!file.exists()) {
+                createTable(file, INITIAL_CAPACITY);
+            }
+            map();
+            readNames();
+        }
+        
+        /**
+         * Creates an empty table file with the given capacity.
+         */
+        private static void createTable(File target, int capacity) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+                raf.setLength(HEADER_SIZE + (long) capacity * SLOT_SIZE);
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+                raf.writeInt(capacity);
+                raf.writeInt(0);
+            }
+        }
+        
+        /**
+         * Maps the table file and validates its header.
+         */
+        private void map() throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION) {
+                    throw new IOException(file.getName() + " is not an EnhancedCompass target table");
+                }
+                capacity = table.getInt(HEADER_CAPACITY);
+                count = table.getInt(HEADER_COUNT);
+                if (Integer.bitCount(capacity) != 1 || channel.size() < HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+                    throw new IOException(file.getName() + " has a damaged header");
+                }
+            } catch (IOException e) {
+                channel.close();
+                channel = null;
+                table = null;
+                throw e;
+            }
+        }
+        
+        /**
+         * Reads the interned names written so far.
+         */
+        private void readNames() throws IOException {
+            if (!namesFile.exists()) {
+                return;
+            }
+            for (String line : Files.readAllLines(namesFile.toPath(), StandardCharsets.UTF_8)) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String name = line.substring(1);
+                if (line.charAt(0) == 'T') {
+                    typeIds.put(name, typeNames.size());
+                    typeNames.add(name);
+                } else {
+                    worldIds.put(name, worldNames.size());
+                    worldNames.add(name);
+                }
+            }
+        }
+        
+        /**
+         * Returns the id of a name, appending it to the names file the first time it is seen.
+         */
+        private int intern(String name, char kind, List<String> names, Map<String, Integer> ids) throws IOException {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            Files.write(namesFile.toPath(), List.of(kind + name), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            ids.put(name, names.size());
+            names.add(name);
+            return names.size() - 1;
+        }
+        
+        /**
+         * Spreads UUID bits over the table (murmur3 finalizer).
+         */
+        private static int hash(long mostSigBits, long leastSigBits) {
+            long h = mostSigBits ^ leastSigBits;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return (int) h;
+        }
+        
+        /**
+         * Finds the slot holding a UUID, or the empty slot where it would go.
+         * 
+         * @return Byte offset of the slot
+         */
+        private static int findSlot(MappedByteBuffer buffer, int capacity, long mostSigBits, long leastSigBits) {
+            int index = hash(mostSigBits, leastSigBits) & (capacity - 1);
+            while (true) {
+                int offset = HEADER_SIZE + index * SLOT_SIZE;
+                long slotMost = buffer.getLong(offset);
+                long slotLeast = buffer.getLong(offset + 8);
+                if ((slotMost == mostSigBits && slotLeast == leastSigBits) || (slotMost == 0 && slotLeast == 0)) {
+                    return offset;
+                }
+                index = (index + 1) & (capacity - 1);
+            }
+        }
+        
+        @Override
+        public synchronized StoredTarget load(UUID playerId, String playerName) {
+            if (table == null) {
+                return null;
+            }
+            int offset = findSlot(table, capacity, playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+            if (table.getLong(offset) == 0 && table.getLong(offset + 8) == 0) {
+                return null;  // Empty slot - player has no saved target
+            }
+            return readSlot(offset, playerName);
+        }
+        
+        /**
+         * Decodes the slot at a byte offset.
+         */
+        private StoredTarget readSlot(int offset, String playerName) {
+            int typeId = table.getInt(offset + 16);
+            int worldId = table.getInt(offset + 20);
+            if (typeId >= typeNames.size() || worldId >= worldNames.size()) {
+                plugin.getLogger().warning("Compass target for player " + playerName + " refers to an unknown name, ignoring it");
+                return null;
+            }
+            return new StoredTarget(playerName, typeNames.get(typeId), worldNames.get(worldId),
+                                    table.getDouble(offset + 24), table.getDouble(offset + 32), table.getDouble(offset + 40));
+        }
+        
+        @Override
+        public synchronized Map<UUID, StoredTarget> loadAll() {
+            Map<UUID, StoredTarget> targets = new HashMap<>();
+            if (table == null) {
+                return targets;
+            }
+            for (int index = 0; index < capacity; index++) {
+                int offset = HEADER_SIZE + index * SLOT_SIZE;
+                UUID playerId = new UUID(table.getLong(offset), table.getLong(offset + 8));
+                if (playerId.getMostSignificantBits() == 0 && playerId.getLeastSignificantBits() == 0) {
+                    continue;
+                }
+                StoredTarget target = readSlot(offset, playerId.toString());
+                if (target != null) {
+                    targets.put(playerId, target);
+                }
+            }
+            return targets;
+        }
+        
+        /**
+         * Writes the batch straight into the mapping, growing the table first if needed.
+         */
+        @Override
+        public synchronized void saveAll(Map<UUID, StoredTarget> targets) throws IOException {
+            if (table == null) {
+                throw new IOException("target store is closed");
+            }
+            
+            // Grow before inserting so probing never runs into a full table
+            // Only players without a slot yet take up room
+            int needed = count;
+            for (UUID playerId : targets.keySet()) {
+                int offset = findSlot(table, capacity, playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+                if (table.getLong(offset) == 0 && table.getLong(offset + 8) == 0) {
+                    needed++;
+                }
+            }
+            if (needed > capacity * 0.7) {
+                int newCapacity = capacity;
+                while (needed > newCapacity * 0.7) {
+                    newCapacity *= 2;
+                }
+                resize(newCapacity);
+            }
+            
+            for (Map.Entry<UUID, StoredTarget> entry : targets.entrySet()) {
+                StoredTarget target = entry.getValue();
+                int typeId = intern(target.structureType, 'T', typeNames, typeIds);
+                int worldId = intern(target.worldName, 'W', worldNames, worldIds);
+                
+                long mostSigBits = entry.getKey().getMostSignificantBits();
+                long leastSigBits = entry.getKey().getLeastSignificantBits();
+                int offset = findSlot(table, capacity, mostSigBits, leastSigBits);
+                if (table.getLong(offset) == 0 && table.getLong(offset + 8) == 0) {
+                    count++;
+                }
+                
+                // Write the data before the key so a torn write never shows a key with stale data
+                table.putInt(offset + 16, typeId);
+                table.putInt(offset + 20, worldId);
+                table.putDouble(offset + 24, target.x);
+                table.putDouble(offset + 32, target.y);
+                table.putDouble(offset + 40, target.z);
+                table.putLong(offset, mostSigBits);
+                table.putLong(offset + 8, leastSigBits);
+            }
+            table.putInt(HEADER_COUNT, count);
+            dirty = true;
+        }
+        
+        /**
+         * Rehashes every slot into a new, larger table file and swaps it in.
+         */
+        private void resize(int newCapacity) throws IOException {
+            File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+            createTable(tempFile, newCapacity);
+            
+            try (FileChannel newChannel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer newTable = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, newChannel.size());
+                for (int index = 0; index < capacity; index++) {
+                    int offset = HEADER_SIZE + index * SLOT_SIZE;
+                    long mostSigBits = table.getLong(offset);
+                    long leastSigBits = table.getLong(offset + 8);
+                    if (mostSigBits == 0 && leastSigBits == 0) {
+                        continue;
+                    }
+                    int newOffset = findSlot(newTable, newCapacity, mostSigBits, leastSigBits);
+                    for (int i = 0; i < SLOT_SIZE; i += 8) {
+                        newTable.putLong(newOffset + i, table.getLong(offset + i));
+                    }
+                }
+                newTable.putInt(HEADER_COUNT, count);
+                newTable.force();
+            } catch (IOException e) {
+                tempFile.delete();
+                throw e;
+            }
+            
+            // Swap files and map the new one
+            long before = channel.size();
+            table.force();
+            channel.close();
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map();
+            plugin.getLogger().info("Grew targets.map from " + before + " to " + channel.size() + " bytes");
+        }
+        
+        /**
+         * Forces written slots to disk. Cheap when nothing changed since the last call.
+         */
+        @Override
+        public synchronized void force() {
+            if (table == null || !dirty) {
+                return;
+            }
+            table.force();
+            dirty = false;
+        }
+        
+        @Override
+        public synchronized void close() {
+            if (table == null) {
+                return;
+            }
+            force();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to close targets.map: " + e.getMessage());
+            }
+            // The mapping itself is released when the buffer is garbage collected
+            channel = null;
+            table = null;
+        }
+    }
+    
+    /**
+     * Player target store in an embedded SQLite database (targets.db).
+     * 
+     * <p><b>Driver:</b></p>
+     * Uses the SQLite JDBC driver that ships with Paper (org.sqlite.JDBC), so the plugin
+     * still has no dependencies of its own.
+     * 
+     * <p><b>Schema:</b></p>
+     * <pre>
+     * compass_targets(uuid TEXT PRIMARY KEY, structure_type TEXT, world TEXT, x REAL, y REAL, z REAL)
+     * </pre>
+     * 
+     * <p><b>Performance:</b></p>
+     * <ul>
+     *   <li>WAL journal mode with synchronous=NORMAL: a commit is one sequential append to the
+     *       write-ahead log, and reads never wait for writers</li>
+     *   <li>saveAll() writes the whole batch as one prepared INSERT OR REPLACE, executed with
+     *       addBatch()/executeBatch() inside a single transaction</li>
+     *   <li>force() runs a passive WAL checkpoint so the log doesn't grow without bound</li>
+     * </ul>
+     * 
+     * <p><b>Threading:</b> One JDBC connection; all public methods are synchronized.</p>
+     */
+    private static class SqliteTargetStore implements PlayerTargetStore {
+        /**
+         * Plugin instance. Logs failed reads and connection, checkpoint and close failures of targets.db.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Open database connection, null once closed */
+        private Connection connection;
+        
+        /** Reused prepared statements */
+        private PreparedStatement selectStatement;
+        private PreparedStatement upsertStatement;
+        
+        /**
+         * Opens (or creates) the database and its table.
+         * 
+         * @throws IOException If the driver is missing or the database can't be opened
+         */
+        SqliteTargetStore(EnhancedCompass plugin, File file) throws IOException {
+            this.plugin = plugin;
+            try {
+                Class.forName("org.sqlite.JDBC");
+                file.getParentFile().mkdirs();
+                connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+                
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA journal_mode=WAL");
+                    statement.execute("PRAGMA synchronous=NORMAL");
+                    statement.execute("CREATE TABLE IF NOT EXISTS compass_targets (" +
+                                      "uuid TEXT PRIMARY KEY, structure_type TEXT NOT NULL, world TEXT NOT NULL, " +
+                                      "x REAL NOT NULL, y REAL NOT NULL, z REAL NOT NULL)");
+                }
+                
+                selectStatement = connection.prepareStatement(
+                    "SELECT structure_type, world, x, y, z FROM compass_targets WHERE uuid = ?");
+                upsertStatement = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO compass_targets (uuid, structure_type, world, x, y, z) VALUES (?, ?, ?, ?, ?, ?)");
+            } catch (ClassNotFoundException e) {
+                throw new IOException("SQLite driver not available on this server");
+            } catch (SQLException e) {
+                close();
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        
+        @Override
+        public synchronized StoredTarget load(UUID playerId, String playerName) {
+            if (connection == null) {
+                return null;
+            }
+            try {
+                selectStatement.setString(1, playerId.toString());
+                try (ResultSet result = selectStatement.executeQuery()) {
+                    if (!result.next()) {
+                        return null;  // Player has no saved target
+                    }
+                    return new StoredTarget(playerName, result.getString(1), result.getString(2),
+                                            result.getDouble(3), result.getDouble(4), result.getDouble(5));
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Failed to load compass target for player " + playerName + ": " + e.getMessage());
+                return null;
+            }
+        }
+        
+        @Override
+        public synchronized Map<UUID, StoredTarget> loadAll() {
+            Map<UUID, StoredTarget> targets = new HashMap<>();
+            if (connection == null) {
+                return targets;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT uuid, structure_type, world, x, y, z FROM compass_targets")) {
+                while (result.next()) {
+                    String playerId = result.getString(1);
+                    targets.put(UUID.fromString(playerId), new StoredTarget(playerId, result.getString(2), result.getString(3),
+                                                                            result.getDouble(4), result.getDouble(5), result.getDouble(6)));
+                }
+            } catch (SQLException | IllegalArgumentException e) {
+                plugin.getLogger().warning("Failed to read compass targets from targets.db: " + e.getMessage());
+            }
+            return targets;
+        }
+        
+        /**
+         * Writes the batch in one transaction. Nothing is written if any row fails.
+         */
+        @Override
+        public synchronized void saveAll(Map<UUID, StoredTarget> targets) throws IOException {
+            if (targets.isEmpty()) {
+                return;
+            }
+            if (connection == null) {
+                throw new IOException("target store is closed");
+            }
+            
+            try {
+                connection.setAutoCommit(false);
+                for (Map.Entry<UUID, StoredTarget> entry : targets.entrySet()) {
+                    StoredTarget target = entry.getValue();
+                    upsertStatement.setString(1, entry.getKey().toString());
+                    upsertStatement.setString(2, target.structureType);
+                    upsertStatement.setString(3, target.worldName);
+                    upsertStatement.setDouble(4, target.x);
+                    upsertStatement.setDouble(5, target.y);
+                    upsertStatement.setDouble(6, target.z);
+                    upsertStatement.addBatch();
+                }
+                upsertStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    // Connection is unusable - the original error is what matters
+                }
+                throw new IOException(e.getMessage(), e);
+            } finally {
+                try {
+                    upsertStatement.clearBatch();
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    plugin.getLogger().warning("Failed to reset targets.db connection: " + e.getMessage());
+                }
+            }
+        }
+        
+        /**
+         * Copies the write-ahead log into the main database file (without blocking readers).
+         */
+        @Override
+        public synchronized void force() {
+            if (connection == null) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA wal_checkpoint(PASSIVE)");
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Failed to checkpoint targets.db: " + e.getMessage());
+            }
+        }
+        
+        @Override
+        public synchronized void close() {
+            if (connection == null) {
+                return;
+            }
+            force();
+            try {
+                connection.close();  // Also closes the prepared statements
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Failed to close targets.db: " + e.getMessage());
+            }
+            connection = null;
+        }
+    }
+    
+    /**
+     * Asynchronous front end for the player target store.
+     * 
+     * <p><b>Why:</b></p>
+     * The stores themselves are plain blocking code (file, mapped buffer or JDBC calls).
+     * This class runs every store call on one dedicated "EnhancedCompass-Storage" thread and
+     * hands back a CompletableFuture, so callers on the main thread or the login thread never
+     * do storage I/O themselves and can decide whether to wait, time out or chain work.
+     * 
+     * <p><b>Ordering:</b></p>
+     * The single thread runs calls in submission order, so a load submitted after a save
+     * always sees that save.
+     * 
+     * <p><b>Opening:</b></p>
+     * The store itself is opened as the first call on the storage thread, so a long
+     * migration never blocks onEnable(). Calls made meanwhile queue behind it, and
+     * isReady() tells the login gate whether the store is open yet.
+     * 
+     * <p><b>Threading:</b> All methods may be called from any thread.</p>
+     */
+    private static class PlayerTargetStorage {
+        /**
+         * Plugin instance. Logs a shutdown that times out waiting for queued calls.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Backend doing the actual I/O (set by the first call on the storage thread) */
+        private volatile PlayerTargetStore store;
+        
+        /** Single storage thread */
+        private final ExecutorService executor;
+        
+        /** Completed once the store is open */
+        private final CompletableFuture<Void> opened;
+        
+        /**
+         * @param plugin Main plugin instance
+         * @param opener Opens the store; runs on the storage thread and must not throw
+         */
+        PlayerTargetStorage(EnhancedCompass plugin, Supplier<PlayerTargetStore> opener) {
+            this.plugin = plugin;
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "EnhancedCompass-Storage");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.opened = CompletableFuture.runAsync(() -> store = opener.get(), executor);
+        }
+        
+        /**
+         * Checks whether the store has been opened (and any migration has finished).
+         * 
+         * @return true once calls no longer wait for the store to open
+         */
+        boolean isReady() {
+            return opened.isDone();
+        }
+        
+        /**
+         * Reads a player's saved target.
+         * 
+         * @param playerId The player's UUID
+         * @param playerName The player's name (for log messages)
+         * @return Future completed with the saved target, or null if there is none
+         */
+        CompletableFuture<StoredTarget> load(UUID playerId, String playerName) {
+            return CompletableFuture.supplyAsync(() -> store.load(playerId, playerName), executor);
+        }
+        
+        /**
+         * Saves a batch of targets in one store call (one transaction / one append).
+         * 
+         * @param targets Latest target per player (copied, so the caller may keep changing its map)
+         * @return Future completed when the batch is written, or exceptionally if it failed
+         */
+        CompletableFuture<Void> saveAll(Map<UUID, StoredTarget> targets) {
+            Map<UUID, StoredTarget> batch = new HashMap<>(targets);
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    store.saveAll(batch);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }
+        
+        /**
+         * Makes everything written so far durable on disk.
+         * 
+         * @return Future completed when the store has synced
+         */
+        CompletableFuture<Void> force() {
+            // Lambda, not store::force - store is only set once the storage thread has opened it
+            return CompletableFuture.runAsync(() -> store.force(), executor);
+        }
+        
+        /**
+         * Finishes queued calls, then closes the store. Called once from onDisable().
+         */
+        void close() {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    plugin.getLogger().warning("Timed out waiting for player target storage to finish");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+    
+    /**
+     * Inner class that writes player targets behind the main thread.
+     * 
+     * <p><b>How It Works:</b></p>
+     * <ul>
+     *   <li>enqueue() (main thread) snapshots the target into plain values and puts it in a
+     *       map keyed by player UUID, replacing any write still pending for that player</li>
+     *   <li>flush() (background task, and once in onDisable()) hands every pending entry to
+     *       PlayerTargetStorage in one batch, waits for it, then drops the entries that weren't
+     *       replaced in the meantime</li>
+     * </ul>
+     * A player who changes target five times between flushes causes one write,
+     * and a mass logout becomes a single background batch instead of hundreds of
+     * writes in one tick. Entries stay queued until written, so getPending() always sees
+     * a target that isn't in the store yet, and a failed batch is retried by the next flush.
+     * 
+     * <p><b>Threading:</b></p>
+     * The pending map is a ConcurrentHashMap, so enqueue() never blocks. flush() is
+     * synchronized so the background flush and the final flush never overlap.
+     */
+    private static class PlayerTargetWriter {
+        /**
+         * Plugin instance. Logs batches that failed to save.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Where flushed targets go */
+        private final PlayerTargetStorage storage;
+        
+        /** Latest unsaved target per player */
+        private final ConcurrentHashMap<UUID, StoredTarget> pending = new ConcurrentHashMap<>();
+        
+        PlayerTargetWriter(EnhancedCompass plugin, PlayerTargetStorage storage) {
+            this.plugin = plugin;
+            this.storage = storage;
+        }
+        
+        /**
+         * Queues a target for saving, replacing any pending save for the same player.
+         * 
+         * @param playerId The player's UUID
+         * @param playerName The player's name (for log messages)
+         * @param target The target to save (location must not be null)
+         */
+        void enqueue(UUID playerId, String playerName, CompassTarget target) {
+            pending.put(playerId, new StoredTarget(playerName, target));
+        }
+        
+        /**
+         * Gets a target that is queued but not written yet.
+         * 
+         * @param playerId The player's UUID
+         * @return The pending target, or null if nothing is queued for this player
+         */
+        StoredTarget getPending(UUID playerId) {
+            return pending.get(playerId);
+        }
+        
+        /**
+         * Writes every queued target to the store.
+         * Entries queued while the flush runs are written by the next flush.
+         */
+        synchronized void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            
+            Map<UUID, StoredTarget> batch = new HashMap<>(pending);
+            try {
+                // Wait for the write - callers are the flush task and onDisable(), never the main tick
+                storage.saveAll(batch).join();
+            } catch (CompletionException e) {
+                // Keep everything queued - the next flush tries again
+                plugin.getLogger().warning("Failed to save " + batch.size() + " compass targets: " + e.getCause().getMessage());
+                return;
+            }
+            
+            // Only drop entries that weren't replaced by a newer target during the write
+            for (Map.Entry<UUID, StoredTarget> entry : batch.entrySet()) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Inner class holding precomputed display names for every structure and biome type.
+     * 
+     * <p><b>Why:</b></p>
+     * formatStructureName() used to split, re-case and join the type name on every call -
+     * from the boss bar loop, from commands and from every search message. The names only
+     * depend on the registries, so they are formatted once per build and looked up after.
+     * 
+     * <p><b>Contents:</b></p>
+     * <ul>
+     *   <li>names: UPPER_CASE type name → "Title Case" display name (interned)</li>
+     *   <li>aquaPrefixes / redPrefixes: type name → styled boss bar title prefix
+     *       "[Name] - " (same dimension / different dimension)</li>
+     * </ul>
+     * 
+     * <p><b>Threading:</b></p>
+     * Immutable once built. A new table is built on enable and on /enhancedcompass reload
+     * and published through a volatile field, so the boss bar render worker can read it too.
+     */
+    private static class DisplayNameTable {
+        /** UPPER_CASE type name → display name */
+        private final Map<String, String> names;
+        
+        /** UPPER_CASE type name → "[Name] - " title prefix in aqua */
+        private final Map<String, Component> aquaPrefixes;
+        
+        /** UPPER_CASE type name → "[Name] - " title prefix in red */
+        private final Map<String, Component> redPrefixes;
+        
+        private DisplayNameTable(Map<String, String> names, Map<String, Component> aquaPrefixes,
+                                 Map<String, Component> redPrefixes) {
+            this.names = names;
+            this.aquaPrefixes = aquaPrefixes;
+            this.redPrefixes = redPrefixes;
+        }
+        
+        /**
+         * Builds the table from every key in Registry.STRUCTURE and Registry.BIOME.
+         * Main thread (registry access).
+         * 
+         * @return New immutable table
+         */
+        static DisplayNameTable build() {
+            List<String> types = new ArrayList<>();
+            Registry.STRUCTURE.forEach(structure -> types.add(structure.getKey().getKey().toUpperCase()));
+            Registry.BIOME.forEach(biome -> types.add(biome.getKey().getKey().toUpperCase()));
+            
+            Map<String, String> names = new HashMap<>();
+            Map<String, Component> aquaPrefixes = new HashMap<>();
+            Map<String, Component> redPrefixes = new HashMap<>();
+            for (String type : types) {
+                String name = toDisplayName(type).intern();
+                names.put(type, name);
+                aquaPrefixes.put(type, titlePrefix(name, NamedTextColor.AQUA));
+                redPrefixes.put(type, titlePrefix(name, NamedTextColor.RED));
+            }
+            return new DisplayNameTable(Map.copyOf(names), Map.copyOf(aquaPrefixes), Map.copyOf(redPrefixes));
+        }
+        
+        /**
+         * Gets the display name of a type (either case), formatting it on the spot if it isn't in
+         * the table (names typed by players that don't exist, or registry entries added after the build).
+         */
+        String getName(String structureType) {
+            String name = names.get(structureType);
+            if (name == null) {
+                // Command input is lower case
+                name = names.get(structureType.toUpperCase());
+            }
+            return name != null ? name : toDisplayName(structureType);
+        }
+        
+        /**
+         * Gets the "[Name] - " boss bar title prefix of a type in the given color.
+         * 
+         * @param nameColor AQUA for same dimension, RED for a different dimension
+         */
+        Component getTitlePrefix(String structureType, NamedTextColor nameColor) {
+            Component prefix = (nameColor == NamedTextColor.AQUA ? aquaPrefixes : redPrefixes).get(structureType);
+            return prefix != null ? prefix : titlePrefix(getName(structureType), nameColor);
+        }
+        
+        /**
+         * Builds a "[Name] - " title prefix.
+         */
+        private static Component titlePrefix(String name, NamedTextColor nameColor) {
+            return Component.text(name, nameColor).append(Component.text(" - ", NamedTextColor.GRAY));
+        }
+        
+        /**
+         * Converts UPPER_CASE_WITH_UNDERSCORES to Title Case.
+         * 
+         * <p><b>Algorithm:</b></p>
+         * <ol>
+         *   <li>Split string on underscores</li>
+         *   <li>For each word: capitalize first letter, lowercase remaining letters</li>
+         *   <li>Join words with spaces</li>
+         * </ol>
+         */
+        static String toDisplayName(String structureType) {
+            // Split on underscores to get individual words
+            String[] words = structureType.split("_");
+            
+            // StringBuilder for efficient string concatenation
+            StringBuilder result = new StringBuilder();
+            
+            // Process each word
+            for (String word : words) {
+                if (word.isEmpty()) {
+                    continue;  // Doubled or trailing underscore
+                }
+                
+                // Add space before word if not first word
+                if (result.length() > 0) {
+                    result.append(" ");
+                }
+                
+                // Capitalize first letter, lowercase the rest
+                // substring(0, 1) = first character
+                // substring(1) = rest of string
+                result.append(word.substring(0, 1).toUpperCase()).append(word.substring(1).toLowerCase());
+            }
+            
+            return result.toString();
+        }
+    }
+    
+    /**
+     * Inner class computing boss bar titles off the main thread (boss-bar.render-mode: async).
+     * 
+     * <p><b>Pipeline:</b></p>
+     * <ol>
+     *   <li>Main thread (update task): for every due holder, makes sure the bar is shown and
+     *       copies the player's position into a RenderBatch - a few primitive array writes</li>
+     *   <li>Worker thread ("EnhancedCompass-BossBar"): computes distances, checks the render
+     *       memo and builds the Adventure title components</li>
+     *   <li>Main thread (next tick): applies the titles with bossBar.name() and reschedules
+     *       the holders on the refresh wheel using the computed distances</li>
+     * </ol>
+     * 
+     * <p><b>Why apply on the main thread:</b></p>
+     * Adventure boss bars are shown through the server's own boss bar, whose packet sending
+     * isn't documented as thread-safe, so only the final name() calls go back to the server
+     * thread. They are cheap: one call per changed title.
+     * 
+     * <p><b>Threading:</b></p>
+     * One batch is handed from the main thread to the single worker and back. From
+     * addToRenderBatch() until applyRenderBatch() a holder's PlayerState.renderInFlight is set,
+     * and the main thread neither refreshes that holder nor touches their render fields (the
+     * update task retries them every tick, /enhancedcompass benchmark refuses to run). So each
+     * PlayerState's render fields are only ever touched by one thread at a time, even across
+     * a render-mode switch on reload.
+     */
+    private static class BossBarRenderer {
+        /**
+         * Plugin instance. Renders the titles (renderBossBarTitle()) and, while enabled, hands each batch
+         * back to the main thread (applyRenderBatch()).
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Single render thread */
+        private final ExecutorService executor;
+        
+        BossBarRenderer(EnhancedCompass plugin) {
+            this.plugin = plugin;
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "EnhancedCompass-BossBar");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        /**
+         * Renders a batch on the worker, then applies it on the main thread.
+         * 
+         * @param batch Snapshot taken by the update task; not touched by the caller afterwards
+         */
+        void submit(RenderBatch batch) {
+            executor.execute(() -> {
+                render(batch);
+                if (plugin.isEnabled()) {
+                    Bukkit.getScheduler().runTask(plugin, () -> plugin.applyRenderBatch(batch));
+                }
+            });
+        }
+        
+        /**
+         * Worker side: distances and titles for every entry in the batch.
+         */
+        private void render(RenderBatch batch) {
+            for (int i = 0; i < batch.size; i++) {
+                CompassTarget target = batch.targets[i];
+                PlayerState state = batch.states[i];
+                double distance = -1;
+                if (batch.sameWorld[i]) {
+                    double distanceSquared = target.distanceSquared(batch.positions[i * 3], batch.positions[i * 3 + 1],
+                                                                    batch.positions[i * 3 + 2]);
+                    if (isRenderedDistance(state, target, distanceSquared)) {
+                        batch.distances[i] = state.renderedDistance;  // Unchanged - no square root
+                        batch.titles[i] = null;
+                        continue;
+                    }
+                    distance = Math.sqrt(distanceSquared);
+                }
+                batch.distances[i] = distance;
+                batch.titles[i] = plugin.renderBossBarTitle(state, target, distance);
+            }
+        }
+        
+        /**
+         * Stops the worker. Batches still queued are dropped (the bars are hidden on disable anyway).
+         */
+        void close() {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * One tick's boss bar refreshes, handed from the main thread to the BossBarRenderer and back.
+     * Positions are stored as a flat primitive array (x, y, z per holder) so taking the
+     * snapshot allocates nothing per player beyond the batch itself.
+     */
+    private static class RenderBatch {
+        /** Wheel tick the snapshot was taken on */
+        final long tick;
+        
+        /** Filled by the main thread */
+        final UUID[] playerIds;
+        final PlayerState[] states;
+        final CompassTarget[] targets;
+        final BossBar[] bossBars;
+        final double[] positions;
+        final boolean[] sameWorld;
+        final double[] previousDistances;
+        final long[] previousTicks;
+        final WorldSettings[] worldSettings;
+        
+        /** Filled by the worker; a null title means the bar already shows it */
+        final double[] distances;
+        final Component[] titles;
+        
+        /** Number of entries used */
+        int size;
+        
+        RenderBatch(long tick, int capacity) {
+            this.tick = tick;
+            this.playerIds = new UUID[capacity];
+            this.states = new PlayerState[capacity];
+            this.targets = new CompassTarget[capacity];
+            this.bossBars = new BossBar[capacity];
+            this.positions = new double[capacity * 3];
+            this.sameWorld = new boolean[capacity];
+            this.previousDistances = new double[capacity];
+            this.previousTicks = new long[capacity];
+            this.worldSettings = new WorldSettings[capacity];
+            this.distances = new double[capacity];
+            this.titles = new Component[capacity];
+        }
+    }
+    
+    /**
+     * Inner class keeping a few unused boss bars for reuse.
+     * 
+     * <p><b>Why:</b></p>
+     * A player keeps one boss bar for their whole session (hidden and shown as they put the
+     * compass away and take it out). When they quit, the bar goes back here instead of to
+     * the garbage collector, so the next player to hold a compass doesn't create one.
+     * 
+     * <p><b>Bounds:</b> At most MAX_SIZE bars are kept; extra released bars are dropped.</p>
+     * 
+     * <p><b>Threading:</b> Main thread only.</p>
+     */
+    private static class BossBarPool {
+        /** Most unused bars kept */
+        static final int MAX_SIZE = 32;
+        
+        /** Unused bars, none shown to anyone */
+        private final ArrayDeque<BossBar> bars = new ArrayDeque<>();
+        
+        /**
+         * Takes a bar from the pool, or creates one if the pool is empty.
+         * 
+         * @return A bar with an empty title and no viewers
+         */
+        BossBar acquire() {
+            BossBar bossBar = bars.poll();
+            if (bossBar == null) {
+                // Create boss bar with:
+                // - Empty initial text (will be set by the first render)
+                // - 100% progress (1.0f)
+                // - Blue color
+                // - PROGRESS overlay (standard bar, not NOTCHED variants)
+                return BossBar.bossBar(Component.empty(), 1.0f, BossBar.Color.BLUE, BossBar.Overlay.PROGRESS);
+            }
+            return bossBar;
+        }
+        
+        /**
+         * Returns a bar that is no longer shown to anyone.
+         * Its title is cleared now (no viewers, so no packet) so a new owner never sees the old one.
+         */
+        void release(BossBar bossBar) {
+            if (bars.size() < MAX_SIZE) {
+                bossBar.name(Component.empty());
+                bars.push(bossBar);
+            }
+        }
+        
+        /**
+         * Drops all pooled bars. Called from onDisable().
+         */
+        void clear() {
+            bars.clear();
+        }
+    }
+    
+    /**
+     * Inner class scheduling boss bar refreshes on a timing wheel.
+     * 
+     * <p><b>Why:</b></p>
+     * A fixed refresh period is either wasteful or inaccurate: a player thousands of blocks
+     * away doesn't notice a two second delay, while a player closing in on a structure wants
+     * the distance to follow every step. Each holder is instead refreshed on their own
+     * interval (see computeRefreshInterval()), and the update task just processes whoever
+     * is due this tick.
+     * 
+     * <p><b>How It Works:</b></p>
+     * <ul>
+     *   <li>SLOTS buckets of player UUIDs, one per tick, used round-robin (a timing wheel)</li>
+     *   <li>schedule() puts a player in the bucket delay ticks ahead - O(1)</li>
+     *   <li>advance() hands back the bucket for the new tick; processed players are rescheduled</li>
+     *   <li>defer() puts a player at the front of the next tick instead (per-tick budget overflow)</li>
+     *   <li>Players are never removed from a bucket. Each PlayerState remembers the tick it is
+     *       due (nextRefreshTick), and entries that don't match are stale and skipped</li>
+     * </ul>
+     * 
+     * <p><b>Threading:</b> Main thread only.</p>
+     */
+    private static class BossBarRefreshWheel {
+        /** Number of buckets; the longest possible delay is SLOTS - 1 ticks */
+        static final int SLOTS = 64;
+        
+        /** Buckets by tick (index = tick % SLOTS) */
+        private final List<ArrayList<UUID>> slots = new ArrayList<>(SLOTS);
+        
+        /** Emptied bucket swapped in for the one being processed */
+        private ArrayList<UUID> spare = new ArrayList<>();
+        
+        /** Ticks since the wheel started */
+        private long currentTick;
+        
+        /** Players deferred to the front of deferredTick's bucket */
+        private final ArrayList<UUID> deferred = new ArrayList<>();
+        private long deferredTick;
+        
+        BossBarRefreshWheel() {
+            for (int i = 0; i < SLOTS; i++) {
+                slots.add(new ArrayList<>());
+            }
+        }
+        
+        /**
+         * Schedules a player's next refresh, replacing any earlier schedule.
+         * 
+         * @param playerId The player's UUID
+         * @param state The player's state (records the due tick)
+         * @param delay Ticks from now, clamped to 1..SLOTS-1
+         */
+        void schedule(UUID playerId, PlayerState state, int delay) {
+            delay = Math.max(1, Math.min(SLOTS - 1, delay));
+            long dueTick = currentTick + delay;
+            state.nextRefreshTick = dueTick;
+            slots.get((int) (dueTick % SLOTS)).add(playerId);
+        }
+        
+        /**
+         * Moves a due player to the front of the next tick's bucket.
+         * Used for players over the per-tick budget; being first next tick means
+         * a player can't be deferred over and over.
+         * 
+         * @param playerId The player's UUID
+         * @param state The player's state (records the due tick)
+         */
+        void defer(UUID playerId, PlayerState state) {
+            long dueTick = currentTick + 1;
+            state.nextRefreshTick = dueTick;
+            deferred.add(playerId);
+            if (deferred.size() == 1) {
+                deferredTick = dueTick;
+            }
+        }
+        
+        /**
+         * Moves to the next tick and returns the players scheduled for it.
+         * The returned list is only valid until the next call; entries may be stale.
+         * 
+         * @return Players (possibly stale) due this tick
+         */
+        List<UUID> advance() {
+            currentTick++;
+            int index = (int) (currentTick % SLOTS);
+            ArrayList<UUID> due = slots.get(index);
+            spare.clear();
+            slots.set(index, spare);
+            spare = due;
+            
+            // Players deferred from the previous tick go first
+            if (!deferred.isEmpty() && deferredTick == currentTick) {
+                due.addAll(0, deferred);
+            }
+            deferred.clear();
+            return due;
+        }
+        
+        /**
+         * Checks whether a bucket entry is the player's current schedule.
+         * 
+         * @param state The player's state, may be null
+         * @return True if the player is really due this tick
+         */
+        boolean isDue(PlayerState state) {
+            return state != null && state.nextRefreshTick == currentTick;
+        }
+        
+        /**
+         * Gets the current tick (used to measure elapsed time between refreshes).
+         */
+        long getCurrentTick() {
+            return currentTick;
+        }
+    }
+    
+    /**
+     * Inner class that tracks which players are holding a compass, driven by inventory events.
+     * 
+     * <p><b>Why:</b></p>
+     * The boss bar update task used to check both hands of every online player every run.
+     * Almost nobody holds a compass at any given moment, so that work scaled with the
+     * player count instead of with the handful of players who actually need a boss bar.
+     * The update task now only walks the active holder set kept here.
+     * 
+     * <p><b>How It Works:</b></p>
+     * <ul>
+     *   <li>Every event that can change what is in a player's hands (held slot change, hand
+     *       swap, inventory click/drag, item pickup/drop, world change, respawn, join) queues a
+     *       recheck of that player</li>
+     *   <li>Rechecks run on the next tick, after the event has been applied to the inventory,
+     *       and look at both hands directly - the event details are never trusted</li>
+     *   <li>Players who stop holding a compass leave the set and lose their boss bar</li>
+     *   <li>A slow full resync (compass-tracking.resync-interval-seconds) catches changes no
+     *       event reports, such as /give, /clear or other plugins editing inventories</li>
+     * </ul>
+     * 
+     * <p><b>Threading:</b> Main thread only (events and scheduled tasks).</p>
+     */
+    private static class CompassHolderTracker implements Listener {
+        /**
+         * Plugin instance. Owns the resync task, supplies the per-world settings and the refresh wheel's tick,
+         * and hides or schedules boss bars (hideBossBar(), scheduleBossBarRefresh()).
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Players currently holding a compass in either hand */
+        private final Set<UUID> activeHolders = new HashSet<>();
+        
+        /** Players to recheck on the next tick */
+        private final Set<UUID> pendingChecks = new HashSet<>();
+        
+        /** Pending rechecks that are join discoveries (first refresh goes on the UUID's phase tick) */
+        private final Set<UUID> pendingSpread = new HashSet<>();
+        
+        /** Whether the next-tick recheck task is already scheduled */
+        private boolean recheckScheduled;
+        
+        /** Slow full resync task, null until started */
+        private BukkitRunnable resyncTask;
+        
+        CompassHolderTracker(EnhancedCompass plugin) {
+            this.plugin = plugin;
+        }
+        
+        /**
+         * Does a full resync now and starts the slow periodic one.
+         * Called from onEnable() after the listener is registered.
+         */
+        void start() {
+            resync();
+            resyncTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    resync();
+                }
+            };
+            long resyncTicks = plugin.configManager.getCompassTrackingResyncSeconds() * 20L;
+            resyncTask.runTaskTimer(plugin, resyncTicks, resyncTicks);
+        }
+        
+        /**
+         * Stops the periodic resync. Called from onDisable().
+         */
+        void stop() {
+            if (resyncTask != null) {
+                resyncTask.cancel();
+                resyncTask = null;
+            }
+            activeHolders.clear();
+            pendingChecks.clear();
+            pendingSpread.clear();
+        }
+        
+        /**
+         * Gets the players currently holding a compass.
+         * Only valid on the main thread; don't keep the returned set.
+         * 
+         * @return Live set of holder UUIDs
+         */
+        Set<UUID> getActiveHolders() {
+            return activeHolders;
+        }
+        
+        /**
+         * Rechecks every online player (fallback for changes no event reports).
+         */
+        private void resync() {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                refresh(player, true);
+            }
+            
+            // Drop anyone who went offline without a quit event reaching us (e.g. after a reload)
+            activeHolders.removeIf(uuid -> Bukkit.getPlayer(uuid) == null);
+        }
+        
+        /**
+         * Queues a player for a recheck on the next tick.
+         * The event that triggered this hasn't changed the inventory yet.
+         */
+        private void scheduleCheck(Player player) {
+            scheduleCheck(player, false);
+        }
+        
+        /**
+         * Queues a player for a recheck on the next tick.
+         * 
+         * @param player The player to recheck
+         * @param spread Whether a new holder found by this check is phase-spread (see refresh())
+         */
+        private void scheduleCheck(Player player, boolean spread) {
+            pendingChecks.add(player.getUniqueId());
+            if (spread) {
+                pendingSpread.add(player.getUniqueId());
+            }
+            if (recheckScheduled) {
+                return;
+            }
+            recheckScheduled = true;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                recheckScheduled = false;
+                for (UUID uuid : pendingChecks) {
+                    Player pending = Bukkit.getPlayer(uuid);
+                    if (pending != null) {
+                        refresh(pending, pendingSpread.contains(uuid));
+                    }
+                }
+                pendingChecks.clear();
+                pendingSpread.clear();
+            });
+        }
+        
+        /**
+         * Updates a player's membership in the holder set from their actual hands.
+         * 
+         * <p><b>Phase:</b></p>
+         * A player who picks up a compass sees the boss bar on the next tick. Holders found in
+         * bulk - by a resync (everyone on startup) or on join (a whole server reconnecting after
+         * a restart) - instead get their first refresh on their own phase tick: the next wheel
+         * tick t with t mod max-refresh-ticks == UUID hash mod max-refresh-ticks. They are
+         * spread over the ticks by UUID instead of all landing on the next tick and refreshing
+         * in lockstep from then on.
+         * 
+         * @param player The player to check
+         * @param spread True for bulk discovery (resync, join): schedule on the UUID's phase tick
+         */
+        private void refresh(Player player, boolean spread) {
+            // Check if player is holding a compass in EITHER hand
+            // This includes both main hand and off hand to support dual-wielding
+            boolean holdingCompass = player.getInventory().getItemInMainHand().getType() == Material.COMPASS ||
+                                     player.getInventory().getItemInOffHand().getType() == Material.COMPASS;
+            
+            if (holdingCompass) {
+                if (activeHolders.add(player.getUniqueId())) {
+                    // New holder - show the boss bar on the next tick (or their UUID's phase tick when spreading)
+                    int delay = 1;
+                    if (spread) {
+                        int period = plugin.configManager.getWorldSettings(player.getWorld()).maxRefreshTicks;
+                        long nextTick = plugin.bossBarRefreshWheel.getCurrentTick() + 1;
+                        delay += (int) Math.floorMod(player.getUniqueId().hashCode() - nextTick, (long) period);
+                    }
+                    plugin.scheduleBossBarRefresh(player.getUniqueId(), delay);
+                }
+            } else if (activeHolders.remove(player.getUniqueId())) {
+                // Player put the compass away - boss bar disappears right away (kept for next time)
+                plugin.hideBossBar(player);
+            }
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onItemHeld(PlayerItemHeldEvent event) {
+            scheduleCheck(event.getPlayer());
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onSwapHands(PlayerSwapHandItemsEvent event) {
+            scheduleCheck(event.getPlayer());
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onInventoryClick(InventoryClickEvent event) {
+            if (event.getWhoClicked() instanceof Player) {
+                scheduleCheck((Player) event.getWhoClicked());
+            }
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onInventoryDrag(InventoryDragEvent event) {
+            if (event.getWhoClicked() instanceof Player) {
+                scheduleCheck((Player) event.getWhoClicked());
+            }
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onPickup(EntityPickupItemEvent event) {
+            if (event.getEntity() instanceof Player) {
+                scheduleCheck((Player) event.getEntity());
+            }
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onDrop(PlayerDropItemEvent event) {
+            scheduleCheck(event.getPlayer());
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onChangedWorld(PlayerChangedWorldEvent event) {
+            scheduleCheck(event.getPlayer());
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onRespawn(PlayerRespawnEvent event) {
+            scheduleCheck(event.getPlayer());
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onJoin(PlayerJoinEvent event) {
+            scheduleCheck(event.getPlayer(), true);
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onQuit(PlayerQuitEvent event) {
+            activeHolders.remove(event.getPlayer().getUniqueId());
+        }
+    }
+    
+    /**
+     * Inner class representing a compass target.
+     * Stores both the target type name (structure or biome) and the exact location coordinates.
+     * This is a simple immutable data holder (all fields are final).
+     * 
+     * <p><b>Design Pattern:</b></p>
+     * This is a simple Data Transfer Object (DTO) with no business logic.
+     * Fields are final to ensure immutability and thread safety.
+     * 
+     * <p><b>Target Type Flexibility:</b></p>
+     * The structureType field can hold either:
+     * <ul>
+     *   <li>Structure types: "ANCIENT_CITY", "VILLAGE_PLAINS", "STRONGHOLD", etc.</li>
+     *   <li>Biome types: "DARK_FOREST", "CHERRY_GROVE", "MUSHROOM_FIELDS", etc.</li>
+     * </ul>
+     * The field name is "structureType" for historical reasons but it's used for both.
+     * 
+     * <p><b>Usage:</b></p>
+     * CompassTarget instances are created when:
+     * <ul>
+     *   <li>Player searches for a structure and one is found</li>
+     *   <li>Player searches for a biome and one is found</li>
+     *   <li>Player's saved target is loaded from disk (on join, see onPlayerJoin())</li>
+     * </ul>
+     * 
+     * CompassTarget instances are stored in:
+     * <ul>
+     *   <li>playerStates map (UUID → PlayerState) for boss bar updates</li>
+     *   <li>Player data YAML files (persisted to disk) for restoration on join</li>
+     * </ul>
+     * 
+     * <p><b>Thread Safety:</b></p>
+     * This class is immutable (all fields final, no setters), making it inherently thread-safe.
+     * Multiple threads can safely read the same CompassTarget instance without synchronization.
+     */
+    private static class CompassTarget {
+        /**
+         * The target type in UPPER_CASE format.
+         * Can be either a structure type (e.g., "ANCIENT_CITY", "VILLAGE_PLAINS")
+         * or a biome type (e.g., "DARK_FOREST", "CHERRY_GROVE").
+         * 
+         * <p><b>Note:</b> The field is named "structureType" for historical reasons,
+         * but it stores both structure and biome type names.</p>
+         * 
+         * Used for display in boss bars, chat messages, and save files.
+         */
+        final String structureType;
+        
+        /**
+         * The exact location of the target (structure or biome) in the world.
+         * Includes world reference and X, Y, Z coordinates.
+         * Used for vanilla compass targeting (setCompassTarget) and distance calculations.
+         */
+        final Location location;
+        
+        /**
+         * The target's world UUID and coordinates as primitives, copied from location.
+         * The boss bar loop compares against these instead of calling Location methods,
+         * so a refresh reads no Location and allocates nothing. worldId is null if the
+         * location has no world.
+         */
+        final UUID worldId;
+        final double x;
+        final double y;
+        final double z;
+        
+        /**
+         * Constructor for creating a new compass target.
+         * 
+         * @param structureType The target type in UPPER_CASE format (structure or biome name)
+         * @param location The location of the target (structure or biome)
+         */
+        CompassTarget(String structureType, Location location) {
+            this.structureType = structureType;
+            this.location = location;
+            World world = location == null ? null : location.getWorld();
+            this.worldId = world == null ? null : world.getUID();
+            this.x = location == null ? 0 : location.getX();
+            this.y = location == null ? 0 : location.getY();
+            this.z = location == null ? 0 : location.getZ();
+        }
+        
+        /**
+         * Squared distance from a point to the target (no square root).
+         * 
+         * @return Squared distance in blocks²
+         */
+        double distanceSquared(double fromX, double fromY, double fromZ) {
+            double dx = x - fromX;
+            double dy = y - fromY;
+            double dz = z - fromZ;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+    
+    /**
+     * Inner class holding everything the plugin tracks for one player.
+     * One record per player in the playerStates map, replacing separate target and boss bar maps.
+     * 
+     * <p><b>Thread Safety:</b></p>
+     * <ul>
+     *   <li>target is volatile and may be written from any thread (publishing an immutable CompassTarget)</li>
+     *   <li>bossBar is only written on the main thread. The rendered fields are written by the main
+     *       thread (render-mode main), or by the BossBarRenderer worker while renderInFlight is set -
+     *       never by both at once. They are volatile so the hand-over is visible to both threads</li>
+     *   <li>The refresh schedule fields are only used on the main thread, so they aren't volatile</li>
+     *   <li>The permission snapshot is volatile; it may be refreshed from the tab completion thread</li>
+     * </ul>
+     */
+    private static class PlayerState {
+        /** renderedDistance value meaning the bar shows the "Not in same dimension" warning */
+        static final long RENDERED_OTHER_DIMENSION = -1;
+        
+        /** Permission snapshot bits (see hasCachedPermission()) */
+        static final int PERMISSION_USE = 1;
+        static final int PERMISSION_RELOAD = 1 << 1;
+        static final int PERMISSION_ADMIN = 1 << 2;
+        static final int PERMISSION_INDEX = 1 << 3;
+        
+        /** Set once a snapshot has been taken */
+        static final int PERMISSIONS_VALID = 1 << 31;
+        
+        /** Current compass target, null if none set */
+        volatile CompassTarget target;
+        
+        /** Boss bar for this session, null until first needed and after quitting */
+        volatile BossBar bossBar;
+        
+        /** Whether bossBar is currently shown (false while not holding a compass) */
+        volatile boolean bossBarVisible;
+        
+        /**
+         * Whether the player is in a RenderBatch the BossBarRenderer hasn't handed back yet.
+         * While set, the main thread leaves the rendered fields alone. Main thread only.
+         */
+        boolean renderInFlight;
+        
+        /** Target the boss bar title was last rendered for (compared by identity) */
+        volatile CompassTarget renderedTarget;
+        
+        /** Rounded distance last rendered, or RENDERED_OTHER_DIMENSION */
+        volatile long renderedDistance;
+        
+        /** Squared distances that still round to renderedDistance: [min, max) */
+        volatile double renderedMinDistanceSquared;
+        volatile double renderedMaxDistanceSquared;
+        
+        /** Distance at the last refresh (-1 if other dimension or unknown) and the wheel tick it was measured */
+        double refreshDistance = -1;
+        long refreshTick;
+        
+        /** Wheel tick this player's next boss bar refresh is due (see BossBarRefreshWheel) */
+        long nextRefreshTick;
+        
+        /** Permission snapshot (PERMISSION_* bits) and the System.nanoTime() it goes stale at */
+        volatile int permissions;
+        volatile long permissionsExpireAt;
+    
+    }
+    
+    /**
+     * The kind of structure search a player requested.
+     * Only affects which chat messages are sent when the search completes.
+     */
+    private enum SearchKind {
+        /** A single named structure type (e.g., /enhancedcompass ancient_city) */
+        SINGLE,
+        
+        /** The closest village of any enabled type (/enhancedcompass village) */
+        VILLAGE,
+        
+        /** The closest structure of any enabled type (/enhancedcompass anything) */
+        ANYTHING
+    }
+    
+    /**
+     * One structure type to look up as part of a search request.
+     * Pairs the UPPER_CASE type name used for display and saving with the
+     * registry Structure object that is actually passed to locateNearestStructure().
+     */
+    private static class SearchCandidate {
+        /** Structure type in UPPER_CASE format (e.g., "VILLAGE_PLAINS") */
+        final String structureType;
+        
+        /** The registry Structure object (NOT the shared StructureType) */
+        final org.bukkit.generator.structure.Structure structure;
+        
+        SearchCandidate(String structureType, org.bukkit.generator.structure.Structure structure) {
+            this.structureType = structureType;
+            this.structure = structure;
+        }
+    }
+    
+    /**
+     * A structure found by the search pipeline.
+     * Immutable, so it can be passed from a worker thread to the main thread safely.
+     */
+    private static class SearchHit {
+        /** Structure type in UPPER_CASE format */
+        final String structureType;
+        
+        /** Location returned by locateNearestStructure() */
+        final Location location;
+        
+        /**
+         * Horizontal (x/z) distance in blocks from the search origin (the player's location when
+         * the search started). Horizontal because ring radii and the index's scanned areas are
+         * horizontal - a 3D distance would be inflated by the structure's height.
+         */
+        final double distance;
+        
+        /** Index into the request's ring schedule of the ring that found this hit, -1 if it came from the structure index */
+        final int ring;
+        
+        SearchHit(String structureType, Location location, double distance, int ring) {
+            this.structureType = structureType;
+            this.location = location;
+            this.distance = distance;
+            this.ring = ring;
+        }
+        
+        /**
+         * Horizontal (x/z) distance between two locations.
+         */
+        static double horizontalDistance(Location from, Location to) {
+            return Math.hypot(to.getX() - from.getX(), to.getZ() - from.getZ());
+        }
+    }
+    
+    /**
+     * Snapshot of a player's structure search request plus its running result.
+     * 
+     * <p><b>Why a Snapshot:</b></p>
+     * Searches no longer run inside onCommand(), so everything the search needs
+     * (world, origin, radius, candidates) is copied here when the command runs.
+     * Worker threads never touch the Player object - only the main thread does,
+     * when the finished request is applied by completeStructureSearch().
+     * 
+     * <p><b>Nearest-Wins Reducer:</b></p>
+     * Candidate lookups may run at the same time on different worker threads.
+     * Each one reports back through recordLookup(), which keeps the closest hit.
+     * Every candidate also has a lower bound - the closest distance at which it
+     * could still produce a hit (0 while nothing is known, infinity once finished).
+     * As soon as no unfinished candidate's lower bound is below the best distance,
+     * the request is settled and the result is applied without waiting for the
+     * lookups still running. A candidate that hasn't been dispatched yet has a lower
+     * bound of 0, so a request only settles early once every candidate is dispatched -
+     * every structure type is still looked up.
+     * 
+     * <p><b>Pruning:</b></p>
+     * The main saving for candidates dispatched after a hit is known: they only search
+     * out to that hit's distance (radiusForNextLookup()), since anything farther can't
+     * win, and the index can often answer such a short search on its own.
+     * 
+     * <p><b>Expanding Rings:</b></p>
+     * Each candidate is searched ring by ring using ringSchedule (e.g., 16, 32, 64 ...
+     * chunks up to the search radius), stopping at the first ring with a hit. Every
+     * empty ring raises that candidate's lower bound to the ring's radius, which is
+     * what lets the reducer settle before slow candidates reach the full radius.
+     * 
+     * <p><b>Thread Safety:</b></p>
+     * The snapshot fields are final. The running state is guarded by the
+     * request's monitor, since lookups are recorded from different threads.
+     */
+    private static class StructureSearchRequest {
+        /** UUID of the player who started the search */
+        final UUID playerId;
+        
+        /** World to search in (the player's world when the command ran) */
+        final World world;
+        
+        /** Search origin (copy of the player's location when the command ran) */
+        final Location origin;
+        
+        /** Kind of search, used to pick the result messages */
+        final SearchKind kind;
+        
+        /** Requested structure type in UPPER_CASE for SINGLE searches, null otherwise */
+        final String requestedType;
+        
+        /** Structure types to look up - the closest hit across all of them wins */
+        final List<SearchCandidate> candidates;
+        
+        /** Search radius in chunks */
+        final int searchRadius;
+        
+        /**
+         * Expanding-ring schedule in chunks, ascending, always ending with searchRadius.
+         * A single entry means expanding rings are disabled.
+         */
+        final int[] ringSchedule;
+        
+        /** Candidate currently being searched in main-thread mode, null if none (main thread only) */
+        CandidateSearch mainThreadSearch;
+        
+        /** Closest hit recorded so far (null until something is found) */
+        private SearchHit bestHit;
+        
+        /**
+         * Lower bound (in blocks) on the distance of any hit each candidate can still produce.
+         * 0 = nothing known yet, POSITIVE_INFINITY = candidate finished.
+         */
+        private final double[] lowerBounds;
+        
+        /** Index of the next candidate to dispatch */
+        private int nextCandidate;
+        
+        /** Number of dispatched lookups that have not reported back yet */
+        private int inFlight;
+        
+        /** Set once the result has been handed off for applying (exactly once) */
+        private boolean completed;
+        
+        StructureSearchRequest(Player player, SearchKind kind, String requestedType, List<SearchCandidate> candidates,
+                               int searchRadius, int[] ringSchedule) {
+            this.playerId = player.getUniqueId();
+            this.world = player.getWorld();
+            this.origin = player.getLocation().clone();
+            this.kind = kind;
+            this.requestedType = requestedType;
+            this.candidates = List.copyOf(candidates);
+            this.searchRadius = searchRadius;
+            this.ringSchedule = ringSchedule;
+            this.lowerBounds = new double[this.candidates.size()];
+        }
+        
+        /**
+         * Claims the next candidate for a lookup.
+         * 
+         * @return Index of the claimed candidate, or -1 if there is nothing left to
+         *         dispatch (all candidates claimed, or the request already completed)
+         */
+        synchronized int claimNextCandidate() {
+            // No isSettled() check: the candidate about to be claimed has a lower bound of 0
+            if (completed || nextCandidate >= candidates.size()) {
+                return -1;
+            }
+            inFlight++;
+            return nextCandidate++;
+        }
+        
+        /**
+         * Gets the radius (in chunks) the next lookup needs to cover.
+         * Once a hit is known there is no point searching beyond its distance.
+         * 
+         * @return Radius in chunks, never more than the configured search radius
+         */
+        synchronized int radiusForNextLookup() {
+            if (bestHit == null) {
+                return searchRadius;
+            }
+            // Radius is counted in chunks from the origin's chunk, so one more to reach every closer block
+            int prunedRadius = (int) Math.ceil(bestHit.distance / 16.0) + 1;
+            return Math.max(1, Math.min(searchRadius, prunedRadius));
+        }
+        
+        /**
+         * Raises a candidate's lower bound, e.g. after part of its search area came up empty.
+         * 
+         * @param index Candidate index
+         * @param distance Distance in blocks within which the candidate is known to have no hit
+         */
+        synchronized void raiseLowerBound(int index, double distance) {
+            lowerBounds[index] = Math.max(lowerBounds[index], distance);
+        }
+        
+        /**
+         * Records the outcome of one candidate lookup, keeping the closest hit.
+         * 
+         * @param index Index of the candidate that finished
+         * @param hit The hit found for that candidate, or null if it wasn't found
+         * @return true exactly once - when the request becomes complete and should be applied
+         */
+        synchronized boolean recordLookup(int index, SearchHit hit) {
+            if (hit != null && (bestHit == null || hit.distance < bestHit.distance)) {
+                bestHit = hit;
+            }
+            lowerBounds[index] = Double.POSITIVE_INFINITY;
+            inFlight--;
+            
+            // Complete when every candidate has reported, or when nothing unfinished can win anymore
+            boolean allDone = nextCandidate >= candidates.size() && inFlight == 0;
+            if (!completed && (allDone || isSettled())) {
+                completed = true;
+                return true;
+            }
+            return false;
+        }
+        
+        /**
+         * Checks whether the best hit can no longer be beaten by any unfinished candidate.
+         * Must be called while holding the request's monitor.
+         * 
+         * @return true if a hit exists and every candidate's lower bound is at or beyond it
+         */
+        private boolean isSettled() {
+            if (bestHit == null) {
+                return false;
+            }
+            for (double lowerBound : lowerBounds) {
+                if (lowerBound < bestHit.distance) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * @return The closest hit found so far, or null if nothing was found
+         */
+        synchronized SearchHit getBestHit() {
+            return bestHit;
+        }
+    }
+    
+    /**
+     * Progress of one structure type (candidate) within a search request.
+     * Both search modes drive it the same way: call step() until it returns true.
+     * Async mode loops on a worker thread; main-thread mode runs one step at a time, taking turns.
+     * 
+     * <p><b>Steps:</b></p>
+     * <ol>
+     *   <li>First step asks the StructureIndex. If the index can prove the nearest
+     *       instance (or that there is none within the radius), the candidate is done
+     *       without scanning the world</li>
+     *   <li>Otherwise the index still tells us how far around the origin it has full
+     *       coverage (raising the candidate's lower bound), and the nearest known
+     *       instance caps how far the world scan has to go</li>
+     *   <li>Each step then scans one ring of the ring schedule with locateNearestStructure()</li>
+     * </ol>
+     * 
+     * <p><b>Thread Safety:</b> Not thread-safe. Each instance is only used by one
+     * thread at a time (a single worker, or the main thread in main-thread mode).</p>
+     */
+    private static class CandidateSearch {
+        /** The request this candidate belongs to */
+        final StructureSearchRequest request;
+        
+        /** Index of the candidate in request.candidates */
+        final int index;
+        
+        /** Whether the structure index has been consulted yet */
+        private boolean indexChecked;
+        
+        /** Next ring of the ring schedule to scan */
+        private int ring;
+        
+        /** Nearest instance known from the index that isn't proven nearest yet (may be null) */
+        private SearchHit knownHit;
+        
+        /** Final result once step() returned true (null = not found) */
+        private SearchHit result;
+        
+        CandidateSearch(StructureSearchRequest request, int index) {
+            this.request = request;
+            this.index = index;
+        }
+        
+        /**
+         * Performs the next piece of work for this candidate.
+         * 
+         * @param pipeline The pipeline providing lookups and the structure index
+         * @return true if the candidate is finished (see getResult()), false if more steps are needed
+         */
+        boolean step(StructureSearchPipeline pipeline) {
+            SearchCandidate candidate = request.candidates.get(index);
+            
+            // STEP 1: ask the structure index before touching the world
+            if (!indexChecked) {
+                indexChecked = true;
+                IndexLookup indexed = pipeline.index.query(request.world, candidate.structureType,
+                                                           request.origin, request.radiusForNextLookup() * 16.0);
+                SearchHit indexedHit = indexed.nearest == null ? null
+                    : new SearchHit(candidate.structureType, indexed.nearest, SearchHit.horizontalDistance(request.origin, indexed.nearest), -1);
+                
+                if (indexed.proven) {
+                    // Index proves the answer (found or "none within radius") - no world scan needed
+                    result = indexedHit;
+                    return true;
+                }
+                
+                // Nothing unknown can be inside the covered radius
+                request.raiseLowerBound(index, indexed.coveredRadius);
+                knownHit = indexedHit;
+            }
+            
+            // STEP 2+: scan one ring, never beyond the best hit so far or the nearest known instance
+            int maxRadius = request.radiusForNextLookup();
+            if (knownHit != null) {
+                maxRadius = Math.min(maxRadius, Math.max(1, (int) Math.ceil(knownHit.distance / 16.0) + 1));
+            }
+            int radius = Math.min(request.ringSchedule[ring], maxRadius);
+            SearchHit hit = pipeline.lookup(request, candidate, radius, ring);
+            
+            if (hit != null) {
+                // Ring scans work at chunk granularity, so the known instance may still be closer
+                result = (knownHit != null && knownHit.distance < hit.distance) ? knownHit : hit;
+                return true;
+            }
+            
+            // Nothing within this ring - this type can't produce anything closer than the ring radius,
+            // less one chunk: rings are counted from the origin's chunk, not from the origin itself
+            request.raiseLowerBound(index, (radius - 1) * 16.0);
+            
+            if (radius >= maxRadius || ring >= request.ringSchedule.length - 1) {
+                // Whole allowed area scanned - the known instance (if any) is the nearest
+                result = knownHit;
+                return true;
+            }
+            
+            ring++;
+            return false;
+        }
+        
+        /**
+         * @return The candidate's hit once step() returned true, or null if nothing was found
+         */
+        SearchHit getResult() {
+            return result;
+        }
+    }
+    
+    /**
+     * Answer from the StructureIndex for one structure type around a search origin.
+     * Immutable.
+     */
+    private static class IndexLookup {
+        /** Answer used when the index is disabled or knows nothing */
+        static final IndexLookup NONE = new IndexLookup(null, false, 0);
+        
+        /** Nearest known instance within the search radius, or null if none is known */
+        final Location nearest;
+        
+        /**
+         * true if the index proves the answer: nearest is the closest instance,
+         * or (when nearest is null) there is no instance within the search radius
+         */
+        final boolean proven;
+        
+        /** Horizontal radius in blocks around the origin with no unknown instances inside */
+        final double coveredRadius;
+        
+        IndexLookup(Location nearest, boolean proven, double coveredRadius) {
+            this.nearest = nearest;
+            this.proven = proven;
+            this.coveredRadius = coveredRadius;
+        }
+    }
+    
+    /**
+     * Inner class holding a persistent, per-world index of structure locations.
+     * 
+     * <p><b>Why:</b></p>
+     * Structure positions are fixed by the world seed, so every locateNearestStructure()
+     * result stays true forever. The index remembers those results and answers
+     * repeated searches without scanning the world again.
+     * 
+     * <p><b>What Is Stored (per world and structure type):</b></p>
+     * <ul>
+     *   <li><b>Instances</b>: every structure location returned by a lookup, bucketed by
+     *       512x512 block region for fast nearest-neighbour queries</li>
+     *   <li><b>Scanned areas</b>: circles (center x/z + radius) in which every instance is
+     *       known. Only lookups that find nothing add one: a lookup with radius R from origin O
+     *       proves (O, R*16 - 16). Hits add no area - for random-spread structures the lookup
+     *       returns the first instance in the first ring of placement cells that has one, not
+     *       the nearest, so closer unknown instances may exist</li>
+     * </ul>
+     * 
+     * <p><b>Proof Rule:</b></p>
+     * For a query from P, the nearest known instance K (distance dK) is provably the
+     * nearest if the circle (P, dK) lies inside one scanned area. Likewise "nothing
+     * within R" is proven if the circle (P, R) lies inside one scanned area. If the
+     * index can't prove the answer, the pipeline falls back to a world scan, capped
+     * at dK when an instance is known.
+     * 
+     * <p><b>File Location:</b></p>
+     * plugins/EnhancedCompass/structure-index/[world-uuid]/[structure_type].yml
+     * 
+     * <p><b>File Structure:</b></p>
+     * <pre>
+     * version: 2
+     * seed: 1234567890
+     * regions:
+     *   3_-2:
+     *   - 1552.0,64.0,-800.0
+     * scanned:
+     * - 100.5,-20.0,4800.0
+     * </pre>
+     * The seed is checked on load; a file written for a different seed is ignored. The
+     * scanned areas of a version 1 file are dropped (its instances are kept).
+     * 
+     * <p><b>Thread Safety:</b></p>
+     * Entries are loaded lazily into a ConcurrentHashMap and each entry is synchronized,
+     * so queries and records may come from any search worker thread.
+     */
+    private static class StructureIndex {
+        /** Size of one index region in blocks (32 chunks) */
+        private static final int REGION_SIZE = 512;
+        
+        /** Blocks taken off every scanned area - the lookup radius counts from the origin's chunk */
+        private static final double CHUNK_SLACK = 16.0;
+        
+        /**
+         * Plugin instance. Supplies the structure-index config (enabled, max scanned areas)
+         * and logs failed loads and saves.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Root folder of the index files (plugins/EnhancedCompass/structure-index) */
+        private final File indexFolder;
+        
+        /** Loaded entries, keyed by "world-uuid/STRUCTURE_TYPE" */
+        private final Map<String, IndexedStructureType> entries = new ConcurrentHashMap<>();
+        
+        StructureIndex(EnhancedCompass plugin, File indexFolder) {
+            this.plugin = plugin;
+            this.indexFolder = indexFolder;
+        }
+        
+        /**
+         * Asks the index about the nearest instance of a structure type.
+         * 
+         * @param world World being searched
+         * @param structureType Structure type in UPPER_CASE format
+         * @param origin Search origin
+         * @param maxRadiusBlocks Search radius in blocks
+         * @return What the index knows (IndexLookup.NONE when the index is disabled)
+         */
+        IndexLookup query(World world, String structureType, Location origin, double maxRadiusBlocks) {
+            if (!plugin.configManager.isStructureIndexEnabled()) {
+                return IndexLookup.NONE;
+            }
+            return entry(world, structureType).query(world, origin, maxRadiusBlocks);
+        }
+        
+        /**
+         * Records the outcome of one locateNearestStructure() call.
+         * 
+         * <p><b>What A Lookup Proves:</b></p>
+         * The lookup radius counts chunks for concentric-ring structures and placement-spacing
+         * cells (one or more chunks each) for random-spread ones, both from the origin's chunk.
+         * A miss therefore proves at least the circle of radius chunks * 16 around the origin,
+         * less CHUNK_SLACK for where the origin sits inside its chunk. A hit is only the first
+         * instance met, not necessarily the nearest, so it is indexed as an instance but proves
+         * no area.
+         * 
+         * @param world World that was searched
+         * @param structureType Structure type in UPPER_CASE format
+         * @param origin Search origin
+         * @param searchedRadiusBlocks Lookup radius times 16 (a lower bound on the blocks searched)
+         * @param hit Location that was found, or null if nothing was found
+         */
+        void record(World world, String structureType, Location origin, double searchedRadiusBlocks, Location hit) {
+            if (!plugin.configManager.isStructureIndexEnabled()) {
+                return;
+            }
+            IndexedStructureType entry = entry(world, structureType);
+            if (hit == null) {
+                entry.addScannedArea(origin.getX(), origin.getZ(), searchedRadiusBlocks - CHUNK_SLACK,
+                                     plugin.configManager.getStructureIndexMaxScannedAreas());
+            } else {
+                entry.addInstance(hit.getX(), hit.getY(), hit.getZ());
+            }
+        }
+        
+        /**
+         * Records an area known to hold no unindexed instances (see StructurePreIndexer).
+         * 
+         * @param world World that was searched
+         * @param structureType Structure type in UPPER_CASE format
+         * @param centerX Center x of the area
+         * @param centerZ Center z of the area
+         * @param radiusBlocks Radius of the area in blocks
+         */
+        void recordScannedArea(World world, String structureType, double centerX, double centerZ, double radiusBlocks) {
+            if (!plugin.configManager.isStructureIndexEnabled()) {
+                return;
+            }
+            entry(world, structureType).addScannedArea(centerX, centerZ, radiusBlocks,
+                                                       plugin.configManager.getStructureIndexMaxScannedAreas());
+        }
+        
+        /**
+         * Gets (loading on first use) the index entry for a world and structure type.
+         */
+        private IndexedStructureType entry(World world, String structureType) {
+            return entries.computeIfAbsent(world.getUID() + "/" + structureType, key -> {
+                File file = new File(new File(indexFolder, world.getUID().toString()), structureType.toLowerCase() + ".yml");
+                return IndexedStructureType.load(plugin, file, world.getSeed());
+            });
+        }
+        
+        /**
+         * Writes every changed entry to disk.
+         * Called periodically from an async task and once more from onDisable().
+         * Synchronized so a periodic save and the shutdown save never write at the same time.
+         */
+        synchronized void saveDirty() {
+            for (IndexedStructureType entry : entries.values()) {
+                org.bukkit.configuration.file.YamlConfiguration snapshot = entry.snapshotIfDirty();
+                if (snapshot == null) {
+                    continue;
+                }
+                try {
+                    entry.file.getParentFile().mkdirs();
+                    snapshot.save(entry.file);
+                } catch (Exception e) {
+                    // Keep going - the entry stays in memory and a later change marks it dirty again
+                    plugin.getLogger().warning("Failed to save structure index " + entry.file.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Index data for one structure type in one world.
+     * See StructureIndex for the meaning of instances and scanned areas.
+     * All access is synchronized on the instance.
+     */
+    private static class IndexedStructureType {
+        /** File format version; version 1 files recorded scanned areas from hits */
+        private static final int FORMAT_VERSION = 2;
+        
+        /** File this entry is stored in */
+        final File file;
+        
+        /** Seed of the world this entry was built for */
+        private final long seed;
+        
+        /** Known instances {x, y, z}, keyed by region (see regionKey()) */
+        private final Map<Long, List<double[]>> regions = new HashMap<>();
+        
+        /** Scanned areas {centerX, centerZ, radius} - circles with no unknown instances inside */
+        private final List<double[]> scannedAreas = new ArrayList<>();
+        
+        /** Whether this entry changed since it was last saved */
+        private boolean dirty;
+        
+        private IndexedStructureType(File file, long seed) {
+            this.file = file;
+            this.seed = seed;
+        }
+        
+        /**
+         * Loads an entry from disk, or creates an empty one if the file doesn't exist,
+         * can't be parsed, or was written for a different seed.
+         * 
+         * @param plugin Plugin instance (for logging)
+         * @param file File to load
+         * @param seed Current seed of the world
+         * @return The loaded entry (never null)
+         */
+        static IndexedStructureType load(EnhancedCompass plugin, File file, long seed) {
+            IndexedStructureType entry = new IndexedStructureType(file, seed);
+            if (!file.exists()) {
+                return entry;
+            }
+            
+            try {
+                org.bukkit.configuration.file.YamlConfiguration config = org.bukkit.configuration.file.YamlConfiguration.loadConfiguration(file);
+                
+                // A different seed means the world was regenerated - old positions are meaningless
+                if (config.getLong("seed", seed) != seed) {
+                    plugin.getLogger().info("Ignoring structure index " + file.getName() + " (world seed changed)");
+                    return entry;
+                }
+                
+                if (config.isConfigurationSection("regions")) {
+                    for (String region : config.getConfigurationSection("regions").getKeys(false)) {
+                        for (String value : config.getStringList("regions." + region)) {
+                            double[] xyz = parseDoubles(value);
+                            entry.addInstance(xyz[0], xyz[1], xyz[2]);
+                        }
+                    }
+                }
+                
+                // Older files also hold areas derived from hits, which prove nothing - drop them all
+                if (config.getInt("version", 1) >= FORMAT_VERSION) {
+                    for (String value : config.getStringList("scanned")) {
+                        entry.scannedAreas.add(parseDoubles(value));
+                    }
+                    entry.dirty = false;
+                }
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to load structure index " + file.getName() + ": " + e.getMessage());
+            }
+            return entry;
+        }
+        
+        /**
+         * Parses a comma-separated list of doubles (e.g., "1552.0,64.0,-800.0").
+         */
+        private static double[] parseDoubles(String value) {
+            String[] parts = value.split(",");
+            double[] result = new double[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                result[i] = Double.parseDouble(parts[i].trim());
+            }
+            return result;
+        }
+        
+        /**
+         * Packs region coordinates into a single map key.
+         */
+        private static long regionKey(int regionX, int regionZ) {
+            return ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+        }
+        
+        /**
+         * Adds a structure instance, ignoring exact duplicates.
+         */
+        synchronized void addInstance(double x, double y, double z) {
+            int regionX = Math.floorDiv((int) Math.floor(x), StructureIndex.REGION_SIZE);
+            int regionZ = Math.floorDiv((int) Math.floor(z), StructureIndex.REGION_SIZE);
+            List<double[]> instances = regions.computeIfAbsent(regionKey(regionX, regionZ), key -> new ArrayList<>());
+            for (double[] existing : instances) {
+                if (existing[0] == x && existing[2] == z) {
+                    return;
+                }
+            }
+            instances.add(new double[] {x, y, z});
+            dirty = true;
+        }
+        
+        /**
+         * Adds a scanned area, dropping areas it fully contains.
+         * Areas already inside an existing area are ignored.
+         * 
+         * @param maxAreas Maximum number of areas to keep (smallest are dropped first)
+         */
+        synchronized void addScannedArea(double centerX, double centerZ, double radius, int maxAreas) {
+            if (radius <= 0) {
+                return;
+            }
+            for (double[] area : scannedAreas) {
+                if (Math.hypot(area[0] - centerX, area[1] - centerZ) + radius <= area[2]) {
+                    return;  // Already covered
+                }
+            }
+            scannedAreas.removeIf(area -> Math.hypot(area[0] - centerX, area[1] - centerZ) + area[2] <= radius);
+            scannedAreas.add(new double[] {centerX, centerZ, radius});
+            
+            // Keep the index bounded - small areas prove the least
+            if (scannedAreas.size() > maxAreas) {
+                scannedAreas.sort(Comparator.comparingDouble(area -> -area[2]));
+                scannedAreas.subList(maxAreas, scannedAreas.size()).clear();
+            }
+            dirty = true;
+        }
+        
+        /**
+         * Answers a nearest-instance query (see StructureIndex for the proof rule).
+         * 
+         * @param world World the instances belong to (used to build the returned Location)
+         * @param origin Query origin
+         * @param maxRadius Search radius in blocks
+         * @return What the index knows about this origin
+         */
+        synchronized IndexLookup query(World world, Location origin, double maxRadius) {
+            double originX = origin.getX();
+            double originZ = origin.getZ();
+            
+            // Largest circle around the origin that lies inside some scanned area
+            double covered = 0;
+            for (double[] area : scannedAreas) {
+                covered = Math.max(covered, area[2] - Math.hypot(area[0] - originX, area[1] - originZ));
+            }
+            
+            // Nearest known instance, walking region rings outwards until no closer region can exist
+            double[] nearest = null;
+            double nearestDistSq = maxRadius * maxRadius;
+            int centerX = Math.floorDiv((int) Math.floor(originX), StructureIndex.REGION_SIZE);
+            int centerZ = Math.floorDiv((int) Math.floor(originZ), StructureIndex.REGION_SIZE);
+            int maxRing = (int) Math.ceil(maxRadius / StructureIndex.REGION_SIZE) + 1;
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // Every block in this ring of regions is at least (ring - 1) regions away
+                double minDist = Math.max(0, ring - 1) * (double) StructureIndex.REGION_SIZE;
+                if (minDist * minDist > nearestDistSq) {
+                    break;
+                }
+                for (int dx = -ring; dx <= ring; dx++) {
+                    for (int dz = -ring; dz <= ring; dz++) {
+                        if (Math.max(Math.abs(dx), Math.abs(dz)) != ring) {
+                            continue;  // Interior regions were visited in earlier rings
+                        }
+                        List<double[]> instances = regions.get(regionKey(centerX + dx, centerZ + dz));
+                        if (instances == null) {
+                            continue;
+                        }
+                        for (double[] instance : instances) {
+                            double distX = instance[0] - originX;
+                            double distZ = instance[2] - originZ;
+                            double distSq = distX * distX + distZ * distZ;
+                            if (distSq <= nearestDistSq) {
+                                nearestDistSq = distSq;
+                                nearest = instance;
+                            }
+                        }
+                    }
+                }
+            }
+            
+            if (nearest != null) {
+                Location location = new Location(world, nearest[0], nearest[1], nearest[2]);
+                return new IndexLookup(location, covered >= Math.sqrt(nearestDistSq), covered);
+            }
+            return new IndexLookup(null, covered >= maxRadius, covered);
+        }
+        
+        /**
+         * Builds a YAML snapshot of this entry if it changed since the last save.
+         * Clears the dirty flag; the caller writes the snapshot outside the lock.
+         * 
+         * @return Snapshot to save, or null if nothing changed
+         */
+        synchronized org.bukkit.configuration.file.YamlConfiguration snapshotIfDirty() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            
+            org.bukkit.configuration.file.YamlConfiguration config = new org.bukkit.configuration.file.YamlConfiguration();
+            config.set("version", FORMAT_VERSION);
+            config.set("seed", seed);
+            for (Map.Entry<Long, List<double[]>> region : regions.entrySet()) {
+                int regionX = (int) (region.getKey() >> 32);
+                int regionZ = (int) (long) region.getKey();
+                List<String> values = new ArrayList<>();
+                for (double[] instance : region.getValue()) {
+                    values.add(instance[0] + "," + instance[1] + "," + instance[2]);
+                }
+                config.set("regions." + regionX + "_" + regionZ, values);
+            }
+            List<String> scanned = new ArrayList<>();
+            for (double[] area : scannedAreas) {
+                scanned.add(area[0] + "," + area[1] + "," + area[2]);
+            }
+            config.set("scanned", scanned);
+            return config;
+        }
+    }
+    
+    /**
+     * Inner class that remembers recent biome search results for reuse by nearby searches.
+     * 
+     * <p><b>Why:</b></p>
+     * A biome search is far more expensive than a structure lookup (it samples biome noise
+     * every 32 blocks across the whole radius), and players who travel together tend to
+     * search for the same biome from almost the same spot.
+     * 
+     * <p><b>Layout:</b></p>
+     * Entries are keyed by world, biome and a coarse grid cell of the search origin. Each
+     * cell keeps the latest result for that biome. A lookup checks the origin's cell and
+     * its 8 neighbours and uses the entry whose origin is closest.
+     * 
+     * <p><b>When a Cached Result Is Used:</b></p>
+     * If an earlier search from origin O0 found the biome at distance d0, then from a new
+     * origin O1 (δ blocks away) the true nearest is at least d0 - δ away and the cached
+     * location at most d0 + δ, so the cached answer is off by at most 2δ. It is used when:
+     * <ul>
+     *   <li>Found: 2δ fits within the search's own 32-block resolution or
+     *       biome-cache.tolerance-blocks, and the location is inside the current radius</li>
+     *   <li>Not found: the earlier radius minus δ still covers the current radius
+     *       (less biome-cache.tolerance-blocks)</li>
+     * </ul>
+     * 
+     * <p><b>Eviction:</b> Least recently used entries are dropped beyond biome-cache.max-entries.</p>
+     * 
+     * <p><b>Threading:</b> All methods are synchronized; called from async biome search tasks.</p>
+     */
+    private static class BiomeSearchCache {
+        /** Step size of locateNearestBiome() searches - results are never more accurate than this */
+        private static final int SEARCH_RESOLUTION = 32;
+        
+        /** Entries by "worldUUID/BIOME/cellX/cellZ", in least-recently-used order */
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        
+        /** Lookups answered from the cache */
+        private long hits;
+        
+        /** Lookups that needed a real search */
+        private long misses;
+        
+        /**
+         * One remembered search.
+         * Stores coordinates only, not a Location, so cached entries never hold a World.
+         */
+        private static class Entry {
+            final double originX;
+            final double originZ;
+            final int radiusBlocks;
+            final boolean found;
+            final double x;
+            final double y;
+            final double z;
+            
+            Entry(double originX, double originZ, int radiusBlocks, Location result) {
+                this.originX = originX;
+                this.originZ = originZ;
+                this.radiusBlocks = radiusBlocks;
+                this.found = result != null;
+                this.x = found ? result.getX() : 0;
+                this.y = found ? result.getY() : 0;
+                this.z = found ? result.getZ() : 0;
+            }
+        }
+        
+        /**
+         * A usable cached answer.
+         * location is null for a cached "not found".
+         */
+        static class Lookup {
+            final Location location;
+            
+            Lookup(Location location) {
+                this.location = location;
+            }
+        }
+        
+        /**
+         * Finds a cached answer for a search.
+         * 
+         * @param config Config snapshot the search started with
+         * @param world World being searched
+         * @param biomeType Biome name (UPPER_CASE)
+         * @param origin Search origin
+         * @param radiusBlocks Current search radius in blocks
+         * @return Cached answer, or null if a real search is needed
+         */
+        synchronized Lookup lookup(ConfigManager config, World world, String biomeType, Location origin, int radiusBlocks) {
+            if (!config.isBiomeCacheEnabled()) {
+                return null;
+            }
+            
+            int tolerance = config.getBiomeCacheToleranceBlocks();
+            int cellSize = cellSize(tolerance);
+            int cellX = Math.floorDiv((int) Math.floor(origin.getX()), cellSize);
+            int cellZ = Math.floorDiv((int) Math.floor(origin.getZ()), cellSize);
+            String prefix = world.getUID() + "/" + biomeType + "/";
+            
+            // Pick the entry with the closest origin among this cell and its neighbours
+            Entry best = null;
+            double bestOffset = Double.MAX_VALUE;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    Entry entry = entries.get(prefix + (cellX + dx) + "/" + (cellZ + dz));
+                    if (entry == null) {
+                        continue;
+                    }
+                    double offset = Math.hypot(entry.originX - origin.getX(), entry.originZ - origin.getZ());
+                    if (offset < bestOffset) {
+                        best = entry;
+                        bestOffset = offset;
+                    }
+                }
+            }
+            
+            if (best != null && isUsable(best, bestOffset, origin, radiusBlocks, tolerance)) {
+                hits++;
+                return new Lookup(best.found ? new Location(world, best.x, best.y, best.z) : null);
+            }
+            
+            misses++;
+            return null;
+        }
+        
+        /**
+         * Checks whether an entry's answer is close enough to what a fresh search would return.
+         */
+        private static boolean isUsable(Entry entry, double offset, Location origin, int radiusBlocks, int tolerance) {
+            if (entry.found) {
+                // Cached location can be off by up to twice the origin offset
+                if (offset * 2 > Math.max(SEARCH_RESOLUTION, tolerance)) {
+                    return false;
+                }
+                // A fresh search wouldn't reach a location outside the current radius
+                return Math.hypot(entry.x - origin.getX(), entry.z - origin.getZ()) <= radiusBlocks;
+            }
+            
+            // "Not found" still holds if the area proven empty covers the current radius
+            return entry.radiusBlocks - offset + tolerance >= radiusBlocks;
+        }
+        
+        /**
+         * Remembers the result of a real search.
+         * 
+         * @param config Config snapshot the search started with
+         * @param world World that was searched
+         * @param biomeType Biome name (UPPER_CASE)
+         * @param origin Search origin
+         * @param radiusBlocks Search radius in blocks
+         * @param result Location found, or null if none within the radius
+         */
+        synchronized void record(ConfigManager config, World world, String biomeType, Location origin, int radiusBlocks, Location result) {
+            if (!config.isBiomeCacheEnabled()) {
+                return;
+            }
+            
+            int cellSize = cellSize(config.getBiomeCacheToleranceBlocks());
+            String key = world.getUID() + "/" + biomeType + "/" +
+                         Math.floorDiv((int) Math.floor(origin.getX()), cellSize) + "/" +
+                         Math.floorDiv((int) Math.floor(origin.getZ()), cellSize);
+            entries.put(key, new Entry(origin.getX(), origin.getZ(), radiusBlocks, result));
+            
+            // Evict least recently used entries beyond the configured size
+            int maxEntries = config.getBiomeCacheMaxEntries();
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        
+        /**
+         * Cell size for a tolerance: large enough that every usable entry is in the 3x3 neighbourhood.
+         */
+        private static int cellSize(int tolerance) {
+            return Math.max(SEARCH_RESOLUTION, tolerance);
+        }
+        
+        /**
+         * Drops all entries (called on reload). Counters are kept.
+         */
+        synchronized void clear() {
+            entries.clear();
+        }
+        
+        synchronized int size() {
+            return entries.size();
+        }
+        
+        synchronized long getHits() {
+            return hits;
+        }
+        
+        synchronized long getMisses() {
+            return misses;
+        }
+    }
+    
+    /**
+     * Inner class that fills the StructureIndex ahead of time (/enhancedcompass index).
+     * 
+     * <p><b>How It Works:</b></p>
+     * The square of the given radius around the world's spawn is covered with a grid of
+     * sample points, pre-index.cell-size chunks apart. For every point (spawn first, then
+     * outwards) and every enabled structure type, one locateNearestStructure() call with
+     * a radius of one cell is made and recorded in the index. Neighbouring lookups overlap,
+     * so every instance in the square ends up in the index.
+     * 
+     * <p><b>Covered Disc:</b></p>
+     * StructureIndex.query() only accepts a proof from a circle that lies inside a single
+     * scanned area, so the lookups' own small circles prove nothing beyond about one cell
+     * from a player. As the grid fills outwards, the disc around the center that the finished
+     * points cover is recorded as one scanned area per structure type (see recordCoveredDisc()),
+     * and player searches inside it are answered from the index.
+     * 
+     * <p><b>Tick Budget:</b></p>
+     * Lookups run on the main thread (where locateNearestStructure() is safe), but each
+     * tick only runs lookups until pre-index.tick-budget-ms is used up.
+     * 
+     * <p><b>Progress and Resume:</b></p>
+     * <ul>
+     *   <li>The player who started the job sees a boss bar with the progress; the console
+     *       gets a log line every 10%</li>
+     *   <li>The job's position is saved to structure-index/pre-index.yml every few seconds
+     *       and on shutdown, and resume() picks it up again on the next start</li>
+     * </ul>
+     * 
+     * <p><b>Threading:</b> Main thread only, except state file writes (async).</p>
+     */
+    private static class StructurePreIndexer {
+        /** Save the job position every 100 ticks (5 seconds) */
+        private static final int STATE_SAVE_INTERVAL_TICKS = 100;
+        
+        /**
+         * Plugin instance. Owns the tick task and the async saves, supplies the enabled structures and pre-index
+         * settings, and logs progress and failures.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Index being filled */
+        private final StructureIndex index;
+        
+        /** File holding the running job's position (plugins/EnhancedCompass/structure-index/pre-index.yml) */
+        private final File stateFile;
+        
+        /** Name of the world being indexed, null when no job is running (read by async state writes) */
+        private volatile String worldName;
+        
+        /** UUID of the player who started the job (shown the progress bar), null for console */
+        private UUID owner;
+        
+        /** Grid center (world spawn when the job started) */
+        private double centerX;
+        private double centerZ;
+        
+        /** Job radius in chunks */
+        private int radiusChunks;
+        
+        /** Grid spacing and lookup radius in chunks */
+        private int cellChunks;
+        
+        /** Structure types being indexed (UPPER_CASE), fixed for the job so saved positions stay valid */
+        private List<SearchCandidate> structures;
+        
+        /** Grid offsets {dx, dz} in cells, nearest to spawn first */
+        private int[][] offsets;
+        
+        /** Next step to run (step = point * structures.size() + structure) */
+        private int nextStep;
+        
+        /** Total number of steps in the job */
+        private int totalSteps;
+        
+        /** Last 10% mark logged to console */
+        private int lastLoggedTenth;
+        
+        /** Ticks since the job position was last saved */
+        private int ticksSinceSave;
+        
+        /** Radius in blocks of the covered disc last recorded in the index (0 = none yet) */
+        private double recordedDiscRadius;
+        
+        /** Per-tick task running the job, null when idle */
+        private BukkitRunnable task;
+        
+        /** Progress boss bar shown to the owner */
+        private BossBar progressBar;
+        
+        StructurePreIndexer(EnhancedCompass plugin, StructureIndex index, File stateFile) {
+            this.plugin = plugin;
+            this.index = index;
+            this.stateFile = stateFile;
+        }
+        
+        /**
+         * @return true if a job is running
+         */
+        boolean isRunning() {
+            return task != null;
+        }
+        
+        /**
+         * Starts a new job around the world's spawn.
+         * 
+         * @param world World to index
+         * @param radiusChunks Radius of the indexed square in chunks
+         * @param owner Player to show the progress bar to, or null for console
+         */
+        void start(World world, int radiusChunks, UUID owner) {
+            List<SearchCandidate> candidates = new ArrayList<>();
+            for (String structureType : plugin.configManager.getEnabledStructures(world)) {
+                org.bukkit.generator.structure.Structure structure = Registry.STRUCTURE.get(NamespacedKey.minecraft(structureType.toLowerCase()));
+                if (structure != null) {
+                    candidates.add(new SearchCandidate(structureType, structure));
+                }
+            }
+            
+            Location spawn = world.getSpawnLocation();
+            begin(world.getName(), owner, spawn.getX(), spawn.getZ(), radiusChunks,
+                  plugin.configManager.getPreIndexCellChunks(), candidates, 0);
+        }
+        
+        /**
+         * Resumes the job saved in the state file, if there is one.
+         * Called from onEnable().
+         */
+        void resume() {
+            if (!stateFile.exists()) {
+                return;
+            }
+            
+            try {
+                org.bukkit.configuration.file.YamlConfiguration state = org.bukkit.configuration.file.YamlConfiguration.loadConfiguration(stateFile);
+                String savedWorld = state.getString("world");
+                if (savedWorld == null || Bukkit.getWorld(savedWorld) == null) {
+                    plugin.getLogger().warning("Can't resume structure pre-indexing: world " + savedWorld + " not found");
+                    return;
+                }
+                
+                List<SearchCandidate> candidates = new ArrayList<>();
+                for (String structureType : state.getStringList("structures")) {
+                    org.bukkit.generator.structure.Structure structure = Registry.STRUCTURE.get(NamespacedKey.minecraft(structureType.toLowerCase()));
+                    if (structure != null) {
+                        candidates.add(new SearchCandidate(structureType, structure));
+                    }
+                }
+                
+                String savedOwner = state.getString("owner");
+                begin(savedWorld, savedOwner == null ? null : UUID.fromString(savedOwner),
+                      state.getDouble("center-x"), state.getDouble("center-z"), state.getInt("radius"),
+                      state.getInt("cell-size"), candidates, state.getInt("next-step"));
+                plugin.getLogger().info("Resumed structure pre-indexing: " + describeProgress());
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to resume structure pre-indexing: " + e.getMessage());
+            }
+        }
+        
+        /**
+         * Sets up the job fields and starts the per-tick task.
+         */
+        private void begin(String worldName, UUID owner, double centerX, double centerZ, int radiusChunks,
+                           int cellChunks, List<SearchCandidate> structures, int nextStep) {
+            this.worldName = worldName;
+            this.owner = owner;
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radiusChunks = radiusChunks;
+            this.cellChunks = cellChunks;
+            this.structures = List.copyOf(structures);
+            this.offsets = buildOffsets((radiusChunks + cellChunks - 1) / cellChunks);
+            this.totalSteps = offsets.length * this.structures.size();
+            this.nextStep = Math.min(nextStep, totalSteps);
+            this.lastLoggedTenth = totalSteps == 0 ? 10 : this.nextStep * 10 / totalSteps;
+            this.ticksSinceSave = 0;
+            this.recordedDiscRadius = 0;
+            
+            saveState();
+            
+            task = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            };
+            task.runTaskTimer(plugin, 1L, 1L);
+        }
+        
+        /**
+         * Builds the grid offsets of a (2n+1) x (2n+1) grid, sorted nearest-to-center first.
+         * The order is deterministic so a saved step number always means the same point.
+         */
+        private static int[][] buildOffsets(int cellsPerSide) {
+            int side = cellsPerSide * 2 + 1;
+            int[][] result = new int[side * side][];
+            int i = 0;
+            for (int dx = -cellsPerSide; dx <= cellsPerSide; dx++) {
+                for (int dz = -cellsPerSide; dz <= cellsPerSide; dz++) {
+                    result[i++] = new int[] {dx, dz};
+                }
+            }
+            Arrays.sort(result, Comparator.<int[]>comparingInt(o -> o[0] * o[0] + o[1] * o[1])
+                .thenComparingInt(o -> o[0])
+                .thenComparingInt(o -> o[1]));
+            return result;
+        }
+        
+        /**
+         * Runs lookups until this tick's budget is used up, then updates progress.
+         */
+        private void tick() {
+            World world = Bukkit.getWorld(worldName);
+            if (world == null) {
+                // World was unloaded - keep the saved state so the job can resume later
+                plugin.getLogger().warning("Structure pre-indexing paused: world " + worldName + " is no longer loaded");
+                pause();
+                return;
+            }
+            
+            long deadline = System.nanoTime() + plugin.configManager.getPreIndexTickBudgetMs() * 1_000_000L;
+            int cellBlocks = cellChunks * 16;
+            while (nextStep < totalSteps && System.nanoTime() < deadline) {
+                int[] offset = offsets[nextStep / structures.size()];
+                SearchCandidate candidate = structures.get(nextStep % structures.size());
+                Location origin = new Location(world, centerX + offset[0] * cellBlocks, 64, centerZ + offset[1] * cellBlocks);
+                
+                try {
+                    var structureResult = world.locateNearestStructure(origin, candidate.structure, cellChunks, false);
+                    index.record(world, candidate.structureType, origin, cellChunks * 16.0,
+                                 structureResult == null ? null : structureResult.getLocation());
+                } catch (RuntimeException e) {
+                    // Skip this lookup - one failure shouldn't stop the whole job
+                    plugin.getLogger().warning("Pre-index lookup for " + candidate.structureType + " failed: " + e.getMessage());
+                }
+                nextStep++;
+            }
+            
+            recordCoveredDisc(world);
+            updateProgress();
+            
+            if (nextStep >= totalSteps) {
+                finish();
+                return;
+            }
+            
+            if (++ticksSinceSave >= STATE_SAVE_INTERVAL_TICKS) {
+                ticksSinceSave = 0;
+                saveState();
+            }
+        }
+        
+        /**
+         * Records the disc around the grid center covered by the finished grid points.
+         * 
+         * <p><b>Radius:</b></p>
+         * Every block is within half a cell diagonal of its nearest grid point, so once every
+         * point closer than D to the center is done (points run nearest first), the disc of
+         * radius D - cellBlocks * sqrt(0.5) is covered. A finished job covers the circle
+         * inscribed in its square. One chunk is taken off, as in StructureIndex.record().
+         * Nothing is recorded until the disc has grown.
+         * 
+         * @param world The world being indexed
+         */
+        private void recordCoveredDisc(World world) {
+            if (structures.isEmpty()) {
+                return;
+            }
+            int cellBlocks = cellChunks * 16;
+            double radius;
+            if (nextStep >= totalSteps) {
+                radius = radiusChunks * 16.0;
+            } else {
+                // First grid point that isn't done for every structure type yet
+                int[] next = offsets[nextStep / structures.size()];
+                radius = (Math.hypot(next[0], next[1]) - Math.sqrt(0.5)) * cellBlocks;
+            }
+            radius -= 16;
+            if (radius <= recordedDiscRadius) {
+                return;
+            }
+            recordedDiscRadius = radius;
+            for (SearchCandidate candidate : structures) {
+                index.recordScannedArea(world, candidate.structureType, centerX, centerZ, radius);
+            }
+        }
+        
+        /**
+         * Updates the owner's boss bar and logs every 10% to console.
+         */
+        private void updateProgress() {
+            float progress = totalSteps == 0 ? 1.0f : (float) nextStep / totalSteps;
+            
+            int tenth = (int) (progress * 10);
+            if (tenth > lastLoggedTenth) {
+                lastLoggedTenth = tenth;
+                plugin.getLogger().info("Structure pre-indexing: " + describeProgress());
+            }
+            
+            Player ownerPlayer = owner == null ? null : Bukkit.getPlayer(owner);
+            if (ownerPlayer == null) {
+                return;
+            }
+            Component title = Component.text("Indexing structures in " + worldName, NamedTextColor.AQUA)
+                .append(Component.text(" - ", NamedTextColor.GRAY))
+                .append(Component.text((int) (progress * 100) + "%", NamedTextColor.YELLOW));
+            if (progressBar == null) {
+                progressBar = BossBar.bossBar(title, progress, BossBar.Color.GREEN, BossBar.Overlay.PROGRESS);
+            } else {
+                progressBar.name(title);
+                progressBar.progress(progress);
+            }
+            // Showing an already shown bar is a no-op, and this covers an owner who rejoined
+            ownerPlayer.showBossBar(progressBar);
+        }
+        
+        /**
+         * @return Human-readable progress, e.g. "world 42% (1200/2850 lookups)"
+         */
+        String describeProgress() {
+            int percent = totalSteps == 0 ? 100 : (int) (nextStep * 100L / totalSteps);
+            return worldName + " " + percent + "% (" + nextStep + "/" + totalSteps + " lookups, radius " + radiusChunks + " chunks)";
+        }
+        
+        /**
+         * Completes the job: notifies the owner, deletes the state file and saves the index.
+         */
+        private void finish() {
+            plugin.getLogger().info("Structure pre-indexing of " + worldName + " finished (" + totalSteps + " lookups)");
+            Player ownerPlayer = owner == null ? null : Bukkit.getPlayer(owner);
+            if (ownerPlayer != null) {
+                ownerPlayer.sendMessage(Component.text("Structure pre-indexing of " + worldName + " finished!", NamedTextColor.GREEN));
+            }
+            stop();
+            
+            // Write the new index data now rather than waiting for the periodic save
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, index::saveDirty);
+        }
+        
+        /**
+         * Stops the job and forgets its progress.
+         */
+        void stop() {
+            halt();
+            worldName = null;
+            synchronized (this) {
+                stateFile.delete();
+            }
+        }
+        
+        /**
+         * Stops the job but keeps its saved position so resume() can continue it.
+         * Called from onDisable() and when the job's world unloads.
+         */
+        void pause() {
+            if (task == null) {
+                return;
+            }
+            writeState(buildState());
+            halt();
+        }
+        
+        /**
+         * Cancels the per-tick task and hides the progress bar.
+         */
+        private void halt() {
+            if (task != null) {
+                task.cancel();
+                task = null;
+            }
+            if (progressBar != null) {
+                Player ownerPlayer = owner == null ? null : Bukkit.getPlayer(owner);
+                if (ownerPlayer != null) {
+                    ownerPlayer.hideBossBar(progressBar);
+                }
+                progressBar = null;
+            }
+        }
+        
+        /**
+         * Saves the job position in the background.
+         */
+        private void saveState() {
+            org.bukkit.configuration.file.YamlConfiguration state = buildState();
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> writeState(state));
+        }
+        
+        /**
+         * Builds a snapshot of the job position (main thread).
+         */
+        private org.bukkit.configuration.file.YamlConfiguration buildState() {
+            org.bukkit.configuration.file.YamlConfiguration state = new org.bukkit.configuration.file.YamlConfiguration();
+            state.set("world", worldName);
+            state.set("owner", owner == null ? null : owner.toString());
+            state.set("center-x", centerX);
+            state.set("center-z", centerZ);
+            state.set("radius", radiusChunks);
+            state.set("cell-size", cellChunks);
+            List<String> types = new ArrayList<>();
+            for (SearchCandidate candidate : structures) {
+                types.add(candidate.structureType);
+            }
+            state.set("structures", types);
+            state.set("next-step", nextStep);
+            return state;
+        }
+        
+        /**
+         * Writes a state snapshot to disk. Synchronized so background and shutdown writes never overlap.
+         */
+        private synchronized void writeState(org.bukkit.configuration.file.YamlConfiguration state) {
+            // A stop() that happened after the snapshot was taken wins
+            if (worldName == null) {
+                return;
+            }
+            try {
+                stateFile.getParentFile().mkdirs();
+                state.save(stateFile);
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to save structure pre-indexing progress: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Inner class that runs structure searches without freezing the server tick.
+     * 
+     * <p><b>Search Modes (config: search.mode):</b></p>
+     * <ul>
+     *   <li><b>async</b> (default): lookups run on a bounded pool of worker threads.
+     *       The result is handed back to the main thread with runTask()</li>
+     *   <li><b>main-thread</b>: lookups run on the main thread, one ring of one structure
+     *       type at a time. Each tick starts queued lookups until search.tick-budget-ms is
+     *       used up (always at least one lookup per tick so searches can't stall)</li>
+     * </ul>
+     * 
+     * <p><b>Not Time-Sliced:</b></p>
+     * Main-thread mode is not time-sliced. A lookup is one locateNearestStructure() call,
+     * which always scans from the origin out and can't be split or interrupted, and the
+     * last ring of every schedule is the full search radius - so one tick can take as long
+     * as a full-radius search. The budget only limits how many lookups start in a tick.
+     * The mode was called "sliced" before; that value is still accepted with a warning.
+     * 
+     * <p><b>Fan-Out:</b></p>
+     * Multi-type searches ("village", "anything") are split into one lookup per
+     * structure type. In async mode up to search.fan-out-parallelism lookups of one
+     * request run at the same time; each finished lookup dispatches the next one.
+     * StructureSearchRequest merges the results (nearest wins) and stops dispatching
+     * once no remaining type can beat the best distance. In main-thread mode requests
+     * take turns (round-robin), one lookup at a time.
+     * 
+     * <p><b>In-Progress Tracking:</b></p>
+     * Every search (structure and biome) claims a per-player slot with tryBegin()
+     * and releases it with end() when the result is applied. A player who runs a
+     * second command while their first search is still running gets a message
+     * instead of a second queued search.
+     * 
+     * <p><b>Threading Rules:</b></p>
+     * <ul>
+     *   <li>submit(), the main-thread queue and completeStructureSearch() are main-thread only</li>
+     *   <li>Worker threads only call locateNearestStructure() and record hits on the request</li>
+     *   <li>The in-progress set is concurrent and may be read from any thread</li>
+     * </ul>
+     */
+    private static class StructureSearchPipeline {
+        /**
+         * Plugin instance. Owns the main-thread task, supplies the search settings, receives finished searches
+         * (completeStructureSearch(), while enabled) and logs failed lookups.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** UUIDs of players who currently have a search running */
+        private final Set<UUID> activeSearches = ConcurrentHashMap.newKeySet();
+        
+        /** Persistent structure location index consulted before every world scan */
+        private final StructureIndex index;
+        
+        /** Bounded worker pool used in async mode (daemon threads, so they never block shutdown) */
+        private final ExecutorService workers;
+        
+        /** Requests waiting for their next lookup in main-thread mode (main thread only) */
+        private final ArrayDeque<StructureSearchRequest> mainThreadQueue = new ArrayDeque<>();
+        
+        /** Per-tick task draining mainThreadQueue, null while the queue is idle */
+        private BukkitRunnable mainThreadTask;
+        
+        /**
+         * Creates the pipeline and its worker pool.
+         * 
+         * @param plugin Reference to main plugin instance
+         * @param index Structure location index to consult and fill
+         * @param workerThreads Number of worker threads for async mode (minimum 1)
+         */
+        StructureSearchPipeline(EnhancedCompass plugin, StructureIndex index, int workerThreads) {
+            this.plugin = plugin;
+            this.index = index;
+            
+            // Name the threads so they are easy to spot in thread dumps and profilers
+            AtomicInteger threadCount = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), runnable -> {
+                Thread thread = new Thread(runnable, "EnhancedCompass-Search-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        /**
+         * Claims the "search in progress" slot for a player.
+         * 
+         * @param playerId The player's UUID
+         * @return true if the slot was free and is now claimed, false if a search is already running
+         */
+        boolean tryBegin(UUID playerId) {
+            return activeSearches.add(playerId);
+        }
+        
+        /**
+         * Releases a player's "search in progress" slot.
+         * Safe to call even if the player has no search running.
+         * 
+         * @param playerId The player's UUID
+         */
+        void end(UUID playerId) {
+            activeSearches.remove(playerId);
+        }
+        
+        /**
+         * Starts running a search request. Must be called on the main thread
+         * after tryBegin() succeeded for the request's player.
+         * 
+         * @param request The search snapshot to run
+         */
+        void submit(StructureSearchRequest request) {
+            // Nothing to look up (e.g., every village type disabled) - finish right away
+            if (request.candidates.isEmpty()) {
+                plugin.completeStructureSearch(request);
+                return;
+            }
+            
+            if (plugin.configManager.isMainThreadSearchMode()) {
+                // Queue the request and let the per-tick task work through its lookups
+                mainThreadQueue.add(request);
+                startMainThreadTask();
+            } else {
+                // Fan out: start up to fan-out-parallelism lookups, each one dispatches the next
+                int parallelism = Math.min(plugin.configManager.getSearchFanOutParallelism(), request.candidates.size());
+                for (int i = 0; i < parallelism; i++) {
+                    dispatchNext(request);
+                }
+            }
+        }
+        
+        /**
+         * Sends the request's next unclaimed candidate to the worker pool, if there is one.
+         * 
+         * @param request The request to continue
+         */
+        private void dispatchNext(StructureSearchRequest request) {
+            int index = request.claimNextCandidate();
+            if (index < 0) {
+                return;
+            }
+            
+            try {
+                workers.execute(() -> runCandidate(request, index));
+            } catch (RejectedExecutionException e) {
+                // Pool was shut down (plugin disabling) - the request is dropped with it
+            }
+        }
+        
+        /**
+         * Runs one candidate lookup on the current (worker) thread, then either
+         * hands the finished request back to the main thread or dispatches the next lookup.
+         * 
+         * @param request The search snapshot
+         * @param index Index of the candidate to look up
+         */
+        private void runCandidate(StructureSearchRequest request, int index) {
+            // Check the structure index, then walk the ring schedule until the candidate is finished
+            CandidateSearch search = new CandidateSearch(request, index);
+            while (!search.step(this)) {
+                // Keep stepping - each step searches one ring
+            }
+            
+            if (request.recordLookup(index, search.getResult())) {
+                // Bukkit API calls (compass target, messages) must be made on the main thread
+                // Skip the hand-back if the plugin was disabled while the search was running
+                if (plugin.isEnabled()) {
+                    Bukkit.getScheduler().runTask(plugin, () -> plugin.completeStructureSearch(request));
+                }
+            } else {
+                dispatchNext(request);
+            }
+        }
+        
+        /**
+         * Looks up one candidate structure around the request's origin.
+         * 
+         * @param request The search snapshot (world, origin)
+         * @param candidate The structure type to look up
+         * @param radius Search radius in chunks
+         * @param ring Index of the ring being searched (reported back in the hit)
+         * @return The hit, or null if not found or the lookup failed
+         */
+        private SearchHit lookup(StructureSearchRequest request, SearchCandidate candidate, int radius, int ring) {
+            try {
+                // Parameters: origin location, Structure object, search radius in chunks, find unexplored
+                var structureResult = request.world.locateNearestStructure(
+                    request.origin,
+                    candidate.structure,
+                    radius,
+                    false  // false = can return already found/generated structures
+                );
+                
+                // Remember what this lookup proved, hit or not, for future searches
+                Location location = structureResult == null ? null : structureResult.getLocation();
+                index.record(request.world, candidate.structureType, request.origin, radius * 16.0, location);
+                
+                if (location == null) {
+                    return null;
+                }
+                
+                return new SearchHit(candidate.structureType, location, SearchHit.horizontalDistance(request.origin, location), ring);
+            } catch (RuntimeException e) {
+                // A failed lookup counts as "not found" so the request still completes
+                plugin.getLogger().warning("Structure search for " + candidate.structureType + " failed: " + e.getMessage());
+                return null;
+            }
+        }
+        
+        /**
+         * Starts the per-tick task that drains the main-thread queue, if it isn't already running.
+         * The task cancels itself once the queue is empty.
+         */
+        private void startMainThreadTask() {
+            if (mainThreadTask != null) {
+                return;
+            }
+            
+            mainThreadTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    // Work through queued lookups until this tick's time budget is used up
+                    long deadline = System.nanoTime() + plugin.configManager.getSearchTickBudgetMs() * 1_000_000L;
+                    do {
+                        StructureSearchRequest request = mainThreadQueue.poll();
+                        if (request == null) {
+                            // Queue drained - stop ticking until the next submit()
+                            cancel();
+                            mainThreadTask = null;
+                            return;
+                        }
+                        
+                        // Pick up the next candidate if the previous one finished
+                        // Nothing left to dispatch means the request already completed
+                        if (request.mainThreadSearch == null) {
+                            int index = request.claimNextCandidate();
+                            if (index < 0) {
+                                continue;
+                            }
+                            request.mainThreadSearch = new CandidateSearch(request, index);
+                        }
+                        
+                        // Search exactly one ring of the current candidate per turn
+                        CandidateSearch search = request.mainThreadSearch;
+                        if (!search.step(StructureSearchPipeline.this)) {
+                            // Empty ring - continue with the next ring on a later turn
+                            mainThreadQueue.add(request);
+                            continue;
+                        }
+                        
+                        request.mainThreadSearch = null;
+                        if (request.recordLookup(search.index, search.getResult())) {
+                            plugin.completeStructureSearch(request);
+                        } else {
+                            // Round-robin: go to the back so other players' searches get a turn
+                            mainThreadQueue.add(request);
+                        }
+                    } while (System.nanoTime() < deadline);
+                }
+            };
+            
+            // Run every tick, starting next tick
+            mainThreadTask.runTaskTimer(plugin, 1L, 1L);
+        }
+        
+        /**
+         * Stops the pipeline. Called from onDisable().
+         * Queued and running searches are dropped without applying their results.
+         */
+        void shutdown() {
+            if (mainThreadTask != null) {
+                mainThreadTask.cancel();
+                mainThreadTask = null;
+            }
+            mainThreadQueue.clear();
+            workers.shutdownNow();
+            activeSearches.clear();
+        }
+    }
+    
+    /**
+     * Inner class that reloads the configuration when config.yml is saved (config-reload.watch-file).
+     * 
+     * <p><b>How It Works:</b></p>
+     * <ul>
+     *   <li>A daemon thread ("EnhancedCompass-ConfigWatcher") blocks on a WatchService for the
+     *       plugin's data folder</li>
+     *   <li>A create or modify event for config.yml schedules a reload one second later on the
+     *       main thread; further events in that second are folded into it, since editors often
+     *       write a file in several steps</li>
+     *   <li>The reload itself is the same as /enhancedcompass reload (parsed off the main thread,
+     *       reported to the console)</li>
+     * </ul>
+     */
+    private static class ConfigFileWatcher {
+        /** Delay between the first change event and the reload, in ticks */
+        private static final long DEBOUNCE_TICKS = 20L;
+        
+        /**
+         * Plugin instance. Supplies the data folder to watch, schedules the debounced reloadConfigAsync() while
+         * enabled, and logs it.
+         */
+        private final EnhancedCompass plugin;
+        
+        /** Watch service for the data folder */
+        private final WatchService watchService;
+        
+        /** Thread waiting for file events */
+        private final Thread thread;
+        
+        /** Whether a reload is already scheduled (set by the watcher, cleared on the main thread) */
+        private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+        
+        /**
+         * Starts watching the plugin's data folder.
+         * 
+         * @throws IOException If the folder can't be watched
+         */
+        ConfigFileWatcher(EnhancedCompass plugin) throws IOException {
+            this.plugin = plugin;
+            this.watchService = FileSystems.getDefault().newWatchService();
+            plugin.getDataFolder().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                     StandardWatchEventKinds.ENTRY_MODIFY);
+            this.thread = new Thread(this::run, "EnhancedCompass-ConfigWatcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        /**
+         * Watcher thread: waits for changes to config.yml until closed.
+         */
+        private void run() {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path && ((Path) event.context()).toString().equals("config.yml")) {
+                            scheduleReload();
+                        }
+                    }
+                    if (!key.reset()) {
+                        return;  // Data folder is gone
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Closed on disable
+            }
+        }
+        
+        /**
+         * Schedules one reload for a burst of change events.
+         */
+        private void scheduleReload() {
+            if (!plugin.isEnabled() || !reloadScheduled.compareAndSet(false, true)) {
+                return;
+            }
+            Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                reloadScheduled.set(false);
+                plugin.getLogger().info("config.yml changed, reloading");
+                plugin.reloadConfigAsync(Bukkit.getConsoleSender());
+            }, DEBOUNCE_TICKS);
+        }
+        
+        /**
+         * Stops watching. Called from onDisable().
+         */
+        void close() {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to close config file watcher: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Inner class answering tab completion prefix queries over a fixed set of names.
+     * 
+     * <p><b>Why:</b></p>
+     * onTabComplete() runs on every keystroke. It used to copy the enabled names, lower-case
+     * them through a stream, filter and sort - or walk the whole registry for the console.
+     * The names only change on config load, so they are sorted once here and a completion
+     * is two binary searches.
+     * 
+     * <p><b>How It Works:</b></p>
+     * <ul>
+     *   <li>Names are lower-cased, de-duplicated and sorted into an array</li>
+     *   <li>All names starting with a prefix form one contiguous range of that array:
+     *       from the first name &gt;= prefix to the first name after it that doesn't start with it</li>
+     *   <li>complete() returns that range as a view of a shared immutable list (no copying)</li>
+     * </ul>
+     * 
+     * <p><b>Threading:</b> Immutable.</p>
+     */
+    private static class CompletionIndex {
+        /** Sorted lower_case names */
+        private final String[] sorted;
+        
+        /** Immutable list over sorted, handed out (or views of it) by complete() */
+        private final List<String> list;
+        
+        /**
+         * @param names Names in any case, duplicates allowed
+         */
+        CompletionIndex(Collection<String> names) {
+            TreeSet<String> lowerCase = new TreeSet<>();
+            for (String name : names) {
+                lowerCase.add(name.toLowerCase());
+            }
+            this.sorted = lowerCase.toArray(new String[0]);
+            this.list = List.of(sorted);
+        }
+        
+        /**
+         * Gets every name starting with a prefix, case-insensitively.
+         * 
+         * @param prefix What the sender typed so far
+         * @return Matching names, lower_case and sorted (immutable, shared)
+         */
+        List<String> complete(String prefix) {
+            // toLowerCase() returns the same string when it is already lower case (the usual input)
+            String lowerPrefix = prefix.toLowerCase();
+            if (lowerPrefix.isEmpty()) {
+                return list;
+            }
+            
+            // First name >= prefix
+            int from = Arrays.binarySearch(sorted, lowerPrefix);
+            if (from < 0) {
+                from = -from - 1;
+            }
+            
+            // First name after that which doesn't start with the prefix
+            int low = from;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid].startsWith(lowerPrefix)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return from == low ? List.of() : list.subList(from, low);
+        }
+    }
+    
+    /**
+     * Inner class holding the compiled enabled/disabled state of structure or biome types.
+     * 
+     * <p><b>Why:</b></p>
+     * The config is parsed into Environment → (type name → enabled) maps. Answering "is this
+     * type enabled here?" from those took an Environment.toString(), two HashMap lookups and,
+     * in callers, an upper-cased copy of the input. The table is compiled once per config load:
+     * <ul>
+     *   <li>Each type gets a stable ordinal: registry keys sorted by name, then any config-only
+     *       names (e.g. from a datapack that isn't loaded) after them</li>
+     *   <li>Each environment gets a BitSet of enabled ordinals, in an EnumMap</li>
+     *   <li>Each environment's enabled names are kept as an immutable list in ordinal order</li>
+     *   <li>Each environment gets a CompletionIndex of its enabled names per completion tier
+     *       (the names plus that tier's extra words, e.g. subcommands)</li>
+     * </ul>
+     * A lookup is then one String → ordinal map lookup (lower or upper case) and a bit test,
+     * with no allocation; list getters return the shared immutable list.
+     * 
+     * <p><b>Threading:</b> Immutable once built.</p>
+     */
+    private static class EnablementTable {
+        /** Type name → ordinal, under both the UPPER_CASE and lower_case spelling */
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        
+        /** Enabled ordinals per environment (environments without a config section are absent) */
+        private final EnumMap<World.Environment, BitSet> enabled = new EnumMap<>(World.Environment.class);
+        
+        /** Enabled type names per environment, UPPER_CASE, in ordinal order (immutable) */
+        private final EnumMap<World.Environment, List<String>> enabledLists = new EnumMap<>(World.Environment.class);
+        
+        /** Tab completions per environment, by tier */
+        private final EnumMap<World.Environment, CompletionIndex[]> completions = new EnumMap<>(World.Environment.class);
+        
+        /** Tab completions by tier for environments without a config section (extra words only) */
+        private final CompletionIndex[] noCompletions;
+        
+        /**
+         * Compiles a table.
+         * 
+         * @param registryTypes UPPER_CASE names of every type in the registry
+         * @param sections Parsed config: environment name ("NORMAL", "NETHER", "THE_END") →
+         *                 UPPER_CASE type name → enabled
+         * @param completionTiers Extra words completed alongside the names, one list per tier
+         *                        (at least one, may be empty)
+         */
+        EnablementTable(Collection<String> registryTypes, Map<String, Map<String, Boolean>> sections,
+                        List<List<String>> completionTiers) {
+            // Registry types first, sorted so ordinals don't depend on registry iteration order
+            List<String> names = new ArrayList<>(new TreeSet<>(registryTypes));
+            
+            // Then names that only appear in the config, so they still work (and are listed) as before
+            TreeSet<String> configOnly = new TreeSet<>();
+            for (Map<String, Boolean> section : sections.values()) {
+                configOnly.addAll(section.keySet());
+            }
+            configOnly.removeAll(registryTypes);
+            names.addAll(configOnly);
+            
+            for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+                String name = names.get(ordinal);
+                ordinals.put(name, ordinal);
+                ordinals.put(name.toLowerCase(), ordinal);
+            }
+            
+            for (Map.Entry<String, Map<String, Boolean>> section : sections.entrySet()) {
+                World.Environment environment = World.Environment.valueOf(section.getKey());
+                BitSet bits = new BitSet(names.size());
+                for (Map.Entry<String, Boolean> entry : section.getValue().entrySet()) {
+                    if (entry.getValue()) {
+                        bits.set(ordinals.get(entry.getKey()));
+                    }
+                }
+                
+                List<String> list = new ArrayList<>(bits.cardinality());
+                for (int ordinal = bits.nextSetBit(0); ordinal >= 0; ordinal = bits.nextSetBit(ordinal + 1)) {
+                    list.add(names.get(ordinal));
+                }
+                enabled.put(environment, bits);
+                enabledLists.put(environment, List.copyOf(list));
+                completions.put(environment, buildCompletions(list, completionTiers));
+            }
+            noCompletions = buildCompletions(List.of(), completionTiers);
+        }
+        
+        /**
+         * Builds one CompletionIndex per tier over the names plus that tier's extra words.
+         */
+        static CompletionIndex[] buildCompletions(List<String> names, List<List<String>> completionTiers) {
+            CompletionIndex[] indexes = new CompletionIndex[completionTiers.size()];
+            for (int tier = 0; tier < indexes.length; tier++) {
+                List<String> words = new ArrayList<>(names);
+                words.addAll(completionTiers.get(tier));
+                indexes[tier] = new CompletionIndex(words);
+            }
+            return indexes;
+        }
+        
+        /**
+         * Checks whether a type is enabled in an environment.
+         * 
+         * @param type Type name in UPPER_CASE or lower_case (other spellings are upper-cased first)
+         */
+        boolean isEnabled(World.Environment environment, String type) {
+            BitSet bits = enabled.get(environment);
+            if (bits == null) {
+                return false;  // Environment section doesn't exist in config
+            }
+            Integer ordinal = ordinals.get(type);
+            if (ordinal == null) {
+                ordinal = ordinals.get(type.toUpperCase());  // Mixed case input - rare
+            }
+            return ordinal != null && bits.get(ordinal);
+        }
+        
+        /**
+         * Gets the enabled type names of an environment.
+         * 
+         * @return Shared immutable list in UPPER_CASE (never null, may be empty)
+         */
+        List<String> getEnabled(World.Environment environment) {
+            return enabledLists.getOrDefault(environment, List.of());
+        }
+        
+        /**
+         * Completes a prefix against the enabled names of an environment and a tier's extra words.
+         * 
+         * @param tier Index into the completionTiers the table was built with
+         * @param prefix What the sender typed so far
+         * @return Matching words, lower_case and sorted (shared immutable list)
+         */
+        List<String> complete(World.Environment environment, int tier, String prefix) {
+            return completions.getOrDefault(environment, noCompletions)[tier].complete(prefix);
+        }
+    }
+    
+    /**
+     * Inner class holding the effective settings of one world, compiled from config.yml.
+     * 
+     * <p><b>Why:</b></p>
+     * Servers run many worlds with different rules (resource worlds, event worlds...). The
+     * global settings only knew three dimension buckets plus a blacklist list scanned on
+     * every command. Each world's settings are now resolved once - global defaults, the
+     * dimension's enabled structures/biomes, then its worlds.&lt;name&gt; section - and
+     * looked up by world UUID.
+     * 
+     * <p><b>Per-World Keys (worlds.&lt;name&gt;):</b></p>
+     * <ul>
+     *   <li>search-radius: replaces search-radius</li>
+     *   <li>enabled-structures / enabled-biomes: entries applied on top of the world's
+     *       dimension section (true enables, false disables)</li>
+     *   <li>boss-bar.min-refresh-ticks / max-refresh-ticks / far-distance-blocks</li>
+     * </ul>
+     * 
+     * <p><b>Threading:</b> Immutable.</p>
+     */
+    private static class WorldSettings {
+        /** World's dimension, used for the enablement lookups */
+        private final World.Environment environment;
+        
+        /** True if the world is in blacklisted-worlds (plugin disabled there) */
+        final boolean blacklisted;
+        
+        /** Search radius in chunks */
+        final int searchRadius;
+        
+        /** Boss bar refresh interval bounds (ticks) and the distance of the longest interval */
+        final int minRefreshTicks;
+        final int maxRefreshTicks;
+        final double farDistance;
+        
+        /** Enabled structures and biomes (shared with the dimension defaults unless overridden) */
+        private final EnablementTable structures;
+        private final EnablementTable biomes;
+        
+        WorldSettings(World.Environment environment, boolean blacklisted, int searchRadius,
+                      int minRefreshTicks, int maxRefreshTicks, double farDistance,
+                      EnablementTable structures, EnablementTable biomes) {
+            this.environment = environment;
+            this.blacklisted = blacklisted;
+            this.searchRadius = searchRadius;
+            this.minRefreshTicks = minRefreshTicks;
+            this.maxRefreshTicks = maxRefreshTicks;
+            this.farDistance = farDistance;
+            this.structures = structures;
+            this.biomes = biomes;
+        }
+        
+        boolean isStructureEnabled(String structureType) {
+            return structures.isEnabled(environment, structureType);
+        }
+        
+        boolean isBiomeEnabled(String biomeType) {
+            return biomes.isEnabled(environment, biomeType);
+        }
+        
+        /**
+         * @return Shared immutable list of enabled structure types in UPPER_CASE
+         */
+        List<String> getEnabledStructures() {
+            return structures.getEnabled(environment);
+        }
+        
+        /**
+         * @return Shared immutable list of enabled biome types in UPPER_CASE
+         */
+        List<String> getEnabledBiomes() {
+            return biomes.getEnabled(environment);
+        }
+        
+        /**
+         * Completes the first command argument: enabled structures plus the tier's subcommands.
+         * 
+         * @param tier Permission tier (see EnhancedCompass.completionTier())
+         */
+        List<String> completeStructures(int tier, String prefix) {
+            return structures.complete(environment, tier, prefix);
+        }
+        
+        /**
+         * Completes a biome name among the enabled biomes.
+         */
+        List<String> completeBiomes(String prefix) {
+            return biomes.complete(environment, 0, prefix);
+        }
+    }
+    
+    /**
+     * Inner class that manages plugin configuration from config.yml.
+     * Handles loading, parsing, and validation of all configuration values.
+     * 
+     * <p><b>Managed Configuration:</b></p>
+     * <ul>
+     *   <li>search-radius: Search radius in chunks (default: 100)</li>
+     *   <li>blacklisted-worlds: List of world names where plugin is disabled</li>
+     *   <li>enabled-structures: Per-dimension structure whitelists</li>
+     *   <li>enabled-biomes: Per-dimension biome whitelists</li>
+     *   <li>worlds: Per-world overrides of the above and of the boss bar refresh rate</li>
+     * </ul>
+     * 
+     * <p><b>Config Structure Example:</b></p>
+     * <pre>
      * search-radius: 100
      * blacklisted-worlds:
      *   - lobby
@@ -1593,6 +6897,11 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      *     warped_forest: true
      *   the_end:
      *     end_highlands: true
+     * worlds:
+     *   resources:
+     *     search-radius: 200
+     *     enabled-structures:
+     *       ancient_city: false
      * </pre>
      * 
      * <p><b>Dimension Mapping:</b></p>
@@ -1608,37 +6917,183 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
      * this class rather than directly accessing FileConfiguration.
      * 
      * <p><b>Lifecycle:</b></p>
-     * ConfigManager is created in onEnable() and recreated on config reload.
+     * ConfigManager is created in onEnable() and recreated on config reload
+     * (parsed on a worker thread, see reloadConfigAsync()).
      * All values are cached in memory for fast access during gameplay.
      * 
      * <p><b>Thread Safety:</b></p>
      * This class is effectively immutable after construction (all maps are
      * populated in loadConfig() and never modified). Safe for concurrent reads.
+     * The one exception is the per-world settings snapshot, which is rebuilt on the main
+     * thread when worlds load or unload and swapped in as a whole through a volatile field.
      */
     private static class ConfigManager {
         /**
-         * Reference to main plugin instance.
-         * Used to access getConfig() and getLogger() methods.
+         * Plugin instance. Logs invalid config values.
+         */
+        private final EnhancedCompass plugin;
+        
+        /**
+         * Search radius in chunks for structure searches.
+         * Default: 100 chunks
+         * 1 chunk = 16 blocks, so 100 chunks = 1600 blocks
+         */
+        private int searchRadius;
+        
+        /**
+         * How structure searches are executed.
+         * "async" = worker threads (default), "main-thread" = main thread, lookups spread over ticks
+         */
+        private String searchMode;
+        
+        /**
+         * Number of worker threads used for async structure searches.
+         * Default: 4. Only read at startup.
+         */
+        private int searchWorkerThreads;
+        
+        /**
+         * Main-thread time budget per tick (milliseconds) for main-thread structure searches.
+         * Default: 5 ms (a tick is 50 ms)
+         */
+        private long searchTickBudgetMs;
+        
+        /**
+         * Maximum number of lookups of a single multi-type search ("village", "anything")
+         * that may run at the same time on the worker pool.
+         * Default: 4
+         */
+        private int searchFanOutParallelism;
+        
+        /**
+         * Whether structure searches expand ring by ring instead of going straight to the full radius.
+         * Default: true
+         */
+        private boolean expandingRingsEnabled;
+        
+        /**
+         * Ring radii in chunks for expanding searches, ascending.
+         * Rings at or beyond the search radius are ignored; the search radius is always the last ring.
+         * Default: 16, 32, 64, 128, 256
+         */
+        private int[] ringSchedule;
+        
+        /**
+         * Whether the persistent structure location index is used.
+         * Default: true
+         */
+        private boolean structureIndexEnabled;
+        
+        /**
+         * How often changed structure index files are written to disk, in seconds.
+         * Default: 300. Only read at startup.
+         */
+        private int structureIndexSaveIntervalSeconds;
+        
+        /**
+         * Maximum number of scanned areas kept per world and structure type.
+         * Default: 1024
+         */
+        private int structureIndexMaxScannedAreas;
+        
+        /**
+         * Player target storage backend: "binary" (targets.dat), "mapped" (targets.map),
+         * "sqlite" (targets.db) or "yaml" (playerdata/*.yml).
+         * Default: binary
+         */
+        private String persistenceStorage;
+        
+        /**
+         * How often (seconds) the player target store is forced to disk.
+         * Default: 30 seconds
+         */
+        private int persistenceForceIntervalSeconds;
+        
+        /**
+         * Boss bar refresh interval bounds in ticks, and the distance (blocks) at which the
+         * longest interval is reached.
+         * Defaults: 2, 40, 4000
+         */
+        private int bossBarMinRefreshTicks;
+        private int bossBarMaxRefreshTicks;
+        private double bossBarFarDistance;
+        
+        /**
+         * Most boss bar refreshes per tick, 0 = unlimited.
+         * Default: 100
+         */
+        private int bossBarMaxUpdatesPerTick;
+        
+        /**
+         * Whether boss bar titles are built on a worker thread (render-mode: async).
+         * Default: false (main)
          */
-        private final EnhancedCompass plugin;
+        private boolean bossBarAsyncRender;
         
         /**
-         * Search radius in chunks for structure searches.
-         * Default: 100 chunks
-         * 1 chunk = 16 blocks, so 100 chunks = 1600 blocks
+         * How long (seconds) a player's permission snapshot is used before it is retaken.
+         * Default: 5 seconds
          */
-        private int searchRadius;
+        private int permissionCacheSeconds;
+        
+        /**
+         * Whether config.yml is reloaded automatically when it is saved.
+         * Default: false. Only read at startup.
+         */
+        private boolean configWatchEnabled;
+        
+        /**
+         * How often (seconds) every online player's hands are rechecked for a compass.
+         * Default: 5 seconds
+         */
+        private int compassTrackingResyncSeconds;
+        
+        /**
+         * How often (seconds) queued player data writes are flushed to disk.
+         * Default: 5 seconds
+         */
+        private int persistenceFlushIntervalSeconds;
+        
+        /**
+         * Whether biome search results are reused for nearby searches.
+         * Default: true
+         */
+        private boolean biomeCacheEnabled;
+        
+        /**
+         * Maximum number of cached biome search results.
+         * Default: 2048
+         */
+        private int biomeCacheMaxEntries;
+        
+        /**
+         * How far (blocks) a cached biome location may be from the true nearest one.
+         * Default: 64 blocks
+         */
+        private int biomeCacheToleranceBlocks;
         
         /**
-         * List of world names where the plugin is completely disabled.
+         * Main-thread time budget per tick (milliseconds) for /enhancedcompass index jobs.
+         * Default: 10 ms
+         */
+        private long preIndexTickBudgetMs;
+        
+        /**
+         * Grid spacing and lookup radius (chunks) for /enhancedcompass index jobs.
+         * Default: 32 chunks (512 blocks)
+         */
+        private int preIndexCellChunks;
+        
+        /**
+         * Set of world names where the plugin is completely disabled.
          * Example: ["lobby", "minigames", "hub"]
-         * Empty list = plugin enabled in all worlds
+         * Empty set = plugin enabled in all worlds
          */
-        private List<String> blacklistedWorlds;
+        private Set<String> blacklistedWorlds;
         
         /**
-         * Nested map of enabled structures per dimension.
-         * Structure: Map<Environment String, Map<Structure Type, Enabled Boolean>>
+         * Compiled enabled structures per dimension, from the parsed map below.
+         * Parsed as: Map<Environment String, Map<Structure Type, Enabled Boolean>>
          * 
          * Example structure:
          * {
@@ -1657,11 +7112,11 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          * Inner map keys: Structure types in UPPER_CASE
          * Inner map values: true = enabled, false = disabled
          */
-        private Map<String, Map<String, Boolean>> enabledStructures;
+        private EnablementTable structureTable;
         
         /**
-         * Nested map of enabled biomes per dimension.
-         * Structure: Map<Environment String, Map<Biome Type, Enabled Boolean>>
+         * Compiled enabled biomes per dimension, from the parsed map below.
+         * Parsed as: Map<Environment String, Map<Biome Type, Enabled Boolean>>
          * 
          * Example structure:
          * {
@@ -1680,16 +7135,49 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          * Inner map keys: Biome types in UPPER_CASE
          * Inner map values: true = enabled, false = disabled
          */
-        private Map<String, Map<String, Boolean>> enabledBiomes;
+        private EnablementTable biomeTable;
+        
+        /**
+         * Tab completions for the console: all registry structures plus every subcommand,
+         * and all registry biomes.
+         */
+        private CompletionIndex consoleStructureCompletions;
+        private CompletionIndex consoleBiomeCompletions;
+        
+        /**
+         * Settings of worlds without a worlds.&lt;name&gt; section (environment not yet set).
+         */
+        private WorldSettings defaultTemplate;
+        
+        /**
+         * Settings compiled from each worlds.&lt;name&gt; section, keyed by world name
+         * (environment not yet set - it is only known once the world is loaded).
+         */
+        private Map<String, WorldSettings> worldTemplates;
+        
+        /**
+         * Effective settings of every loaded world, keyed by world UUID.
+         * Immutable; replaced as a whole by compileWorldSettings().
+         */
+        private volatile Map<UUID, WorldSettings> worldSettings = Map.of();
+        
+        /**
+         * Second-argument completions of /enhancedcompass index: status, stop and the loaded
+         * world names (lower-cased; Bukkit.getWorld() ignores case). Rebuilt with worldSettings.
+         */
+        private volatile CompletionIndex indexCompletions = new CompletionIndex(List.of("status", "stop"));
         
         /**
          * Constructor that initializes the ConfigManager and loads configuration.
+         * Safe to call off the main thread; the per-world settings are compiled
+         * separately on the main thread (compileWorldSettings()).
          * 
          * @param plugin Reference to main plugin instance
+         * @param config Parsed config.yml
          */
-        ConfigManager(EnhancedCompass plugin) {
+        ConfigManager(EnhancedCompass plugin, FileConfiguration config) {
             this.plugin = plugin;
-            loadConfig();
+            loadConfig(config);
         }
         
         /**
@@ -1698,11 +7186,11 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          * 
          * <p><b>Load Process:</b></p>
          * <ol>
-         *   <li>Get FileConfiguration from plugin</li>
          *   <li>Load search-radius (with default)</li>
          *   <li>Load blacklisted-worlds list</li>
          *   <li>Load enabled structures for each dimension (normal, nether, the_end)</li>
          *   <li>Load enabled biomes for each dimension (normal, nether, the_end)</li>
+         *   <li>Compile the worlds.&lt;name&gt; overrides</li>
          * </ol>
          * 
          * <p><b>Default Values:</b></p>
@@ -1725,20 +7213,85 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          * Structure and biome names in config can be lowercase (e.g., ancient_city, dark_forest),
          * but are stored internally as UPPER_CASE (e.g., ANCIENT_CITY, DARK_FOREST) for consistency.
          */
-        private void loadConfig() {
-            // Get the plugin's FileConfiguration
-            FileConfiguration config = plugin.getConfig();
-            
+        private void loadConfig(FileConfiguration config) {
             // Load search radius with default of 100 chunks
             // If not present in config, uses default value
             searchRadius = config.getInt("search-radius", 100);
             
+            // Load structure search pipeline settings
+            // Unknown modes fall back to async so a typo never puts searches back on the main thread
+            searchMode = config.getString("search.mode", "async").toLowerCase();
+            if (searchMode.equals("sliced")) {
+                plugin.getLogger().warning("search.mode 'sliced' is now called 'main-thread' (lookups are not time-sliced), please update config.yml");
+                searchMode = "main-thread";
+            }
+            if (!searchMode.equals("async") && !searchMode.equals("main-thread")) {
+                plugin.getLogger().warning("Unknown search.mode '" + searchMode + "', using async");
+                searchMode = "async";
+            }
+            searchWorkerThreads = Math.max(1, config.getInt("search.worker-threads", 4));
+            searchTickBudgetMs = Math.max(1, config.getInt("search.tick-budget-ms", 5));
+            searchFanOutParallelism = Math.max(1, config.getInt("search.fan-out-parallelism", 4));
+            
+            // Load expanding ring schedule (sorted, positive, duplicates removed)
+            expandingRingsEnabled = config.getBoolean("search.expanding-rings.enabled", true);
+            List<Integer> rings = config.isList("search.expanding-rings.schedule")
+                ? config.getIntegerList("search.expanding-rings.schedule")
+                : List.of(16, 32, 64, 128, 256);
+            ringSchedule = rings.stream().filter(r -> r > 0).distinct().sorted().mapToInt(Integer::intValue).toArray();
+            
+            // Load structure index settings
+            structureIndexEnabled = config.getBoolean("structure-index.enabled", true);
+            structureIndexSaveIntervalSeconds = Math.max(10, config.getInt("structure-index.save-interval-seconds", 300));
+            structureIndexMaxScannedAreas = Math.max(16, config.getInt("structure-index.max-scanned-areas", 1024));
+            
+            // Load boss bar refresh settings
+            // The wheel can't schedule further ahead than SLOTS - 1 ticks
+            bossBarMaxRefreshTicks = Math.max(1, Math.min(BossBarRefreshWheel.SLOTS - 1,
+                                                          config.getInt("boss-bar.max-refresh-ticks", 40)));
+            bossBarMinRefreshTicks = Math.max(1, Math.min(bossBarMaxRefreshTicks, config.getInt("boss-bar.min-refresh-ticks", 2)));
+            bossBarFarDistance = Math.max(1.0, config.getDouble("boss-bar.far-distance-blocks", 4000.0));
+            bossBarMaxUpdatesPerTick = Math.max(0, config.getInt("boss-bar.max-updates-per-tick", 100));
+            String renderMode = config.getString("boss-bar.render-mode", "main").toLowerCase();
+            if (!renderMode.equals("main") && !renderMode.equals("async")) {
+                plugin.getLogger().warning("Unknown boss-bar.render-mode '" + renderMode + "', using main");
+                renderMode = "main";
+            }
+            bossBarAsyncRender = renderMode.equals("async");
+            
+            // Load permission snapshot settings
+            permissionCacheSeconds = Math.max(0, config.getInt("permission-cache.refresh-seconds", 5));
+            
+            // Load config reload settings
+            configWatchEnabled = config.getBoolean("config-reload.watch-file", false);
+            
+            // Load compass holder tracking settings
+            compassTrackingResyncSeconds = Math.max(1, config.getInt("compass-tracking.resync-interval-seconds", 5));
+            
+            // Load player data persistence settings
+            persistenceFlushIntervalSeconds = Math.max(1, config.getInt("persistence.flush-interval-seconds", 5));
+            persistenceStorage = config.getString("persistence.storage", "binary").toLowerCase();
+            if (!List.of("binary", "mapped", "sqlite", "yaml").contains(persistenceStorage)) {
+                plugin.getLogger().warning("Unknown persistence.storage '" + persistenceStorage + "', using binary");
+                persistenceStorage = "binary";
+            }
+            persistenceForceIntervalSeconds = Math.max(1, config.getInt("persistence.force-interval-seconds", 30));
+            
+            // Load biome cache settings
+            biomeCacheEnabled = config.getBoolean("biome-cache.enabled", true);
+            biomeCacheMaxEntries = Math.max(16, config.getInt("biome-cache.max-entries", 2048));
+            biomeCacheToleranceBlocks = Math.max(0, config.getInt("biome-cache.tolerance-blocks", 64));
+            
+            // Load pre-indexing settings
+            preIndexTickBudgetMs = Math.max(1, config.getInt("pre-index.tick-budget-ms", 10));
+            preIndexCellChunks = Math.max(4, config.getInt("pre-index.cell-size", 32));
+            
             // Load blacklisted worlds list
             // Returns empty list if not present in config
-            blacklistedWorlds = config.getStringList("blacklisted-worlds");
+            blacklistedWorlds = new HashSet<>(config.getStringList("blacklisted-worlds"));
             
-            // Initialize enabled structures map
-            enabledStructures = new HashMap<>();
+            // Initialize enabled structures map (compiled into structureTable below)
+            Map<String, Map<String, Boolean>> enabledStructures = new HashMap<>();
             
             // LOAD OVERWORLD (NORMAL) STRUCTURES
             // Create map for normal dimension structures
@@ -1786,8 +7339,8 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
             // Store end structures map with "THE_END" key
             enabledStructures.put("THE_END", endStructures);
             
-            // Initialize enabled biomes map
-            enabledBiomes = new HashMap<>();
+            // Initialize enabled biomes map (compiled into biomeTable below)
+            Map<String, Map<String, Boolean>> enabledBiomes = new HashMap<>();
             
             // LOAD OVERWORLD (NORMAL) BIOMES
             // Create map for normal dimension biomes
@@ -1834,10 +7387,152 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
             }
             // Store end biomes map with "THE_END" key
             enabledBiomes.put("THE_END", endBiomes);
+            
+            // Compile both into per-environment bitsets over stable registry ordinals
+            List<String> structureTypes = new ArrayList<>();
+            Registry.STRUCTURE.forEach(structure -> structureTypes.add(structure.getKey().getKey().toUpperCase()));
+            structureTable = new EnablementTable(structureTypes, enabledStructures, SUBCOMMAND_TIERS);
+            
+            List<String> biomeTypes = new ArrayList<>();
+            Registry.BIOME.forEach(biome -> biomeTypes.add(biome.getKey().getKey().toUpperCase()));
+            biomeTable = new EnablementTable(biomeTypes, enabledBiomes, List.of(List.of()));
+            
+            // Console completions: every registry name, and every subcommand (console has all permissions)
+            List<String> consoleWords = new ArrayList<>(structureTypes);
+            consoleWords.addAll(SUBCOMMAND_TIERS.get(SUBCOMMAND_TIERS.size() - 1));
+            consoleStructureCompletions = new CompletionIndex(consoleWords);
+            consoleBiomeCompletions = new CompletionIndex(biomeTypes);
+            
+            // LOAD PER-WORLD OVERRIDES
+            // Everything not set in a world's section falls back to the values loaded above
+            defaultTemplate = new WorldSettings(null, false, searchRadius, bossBarMinRefreshTicks, bossBarMaxRefreshTicks,
+                                                bossBarFarDistance, structureTable, biomeTable);
+            worldTemplates = new HashMap<>();
+            ConfigurationSection worlds = config.getConfigurationSection("worlds");
+            if (worlds != null) {
+                for (String worldName : worlds.getKeys(false)) {
+                    ConfigurationSection section = worlds.getConfigurationSection(worldName);
+                    if (section == null) {
+                        plugin.getLogger().warning("Ignoring worlds." + worldName + ": not a section");
+                        continue;
+                    }
+                    
+                    int maxTicks = Math.max(1, Math.min(BossBarRefreshWheel.SLOTS - 1,
+                                                        section.getInt("boss-bar.max-refresh-ticks", bossBarMaxRefreshTicks)));
+                    int minTicks = Math.max(1, Math.min(maxTicks, section.getInt("boss-bar.min-refresh-ticks", bossBarMinRefreshTicks)));
+                    double farDistance = Math.max(1.0, section.getDouble("boss-bar.far-distance-blocks", bossBarFarDistance));
+                    
+                    // Only compile new tables for worlds that actually change the lists
+                    EnablementTable structures = section.isConfigurationSection("enabled-structures")
+                        ? new EnablementTable(structureTypes, overlay(enabledStructures, section.getConfigurationSection("enabled-structures")),
+                                            SUBCOMMAND_TIERS)
+                        : structureTable;
+                    EnablementTable biomes = section.isConfigurationSection("enabled-biomes")
+                        ? new EnablementTable(biomeTypes, overlay(enabledBiomes, section.getConfigurationSection("enabled-biomes")),
+                                            List.of(List.of()))
+                        : biomeTable;
+                    
+                    worldTemplates.put(worldName, new WorldSettings(null, false, section.getInt("search-radius", searchRadius),
+                                                                    minTicks, maxTicks, farDistance, structures, biomes));
+                }
+            }
+        }
+        
+        /**
+         * Applies a world's enabled-structures/enabled-biomes entries on top of every dimension's section.
+         * The world's dimension isn't known until it loads, so each dimension gets its own merged copy.
+         * 
+         * @param sections Parsed dimension sections (environment name → UPPER_CASE type → enabled)
+         * @param overrides The world's enabled-structures or enabled-biomes section
+         * @return Merged sections for every World.Environment
+         */
+        private static Map<String, Map<String, Boolean>> overlay(Map<String, Map<String, Boolean>> sections,
+                                                                 ConfigurationSection overrides) {
+            Map<String, Map<String, Boolean>> merged = new HashMap<>();
+            for (World.Environment environment : World.Environment.values()) {
+                Map<String, Boolean> section = new HashMap<>(sections.getOrDefault(environment.name(), Map.of()));
+                for (String key : overrides.getKeys(false)) {
+                    section.put(key.toUpperCase(), overrides.getBoolean(key));
+                }
+                merged.put(environment.name(), section);
+            }
+            return merged;
+        }
+        
+        /**
+         * Rebuilds the per-world settings snapshot from the currently loaded worlds and
+         * publishes it in one volatile write. Also rebuilds the index argument completions. Main thread (called before the ConfigManager is
+         * published on enable and reload, and on WorldLoadEvent/WorldUnloadEvent).
+         */
+        void compileWorldSettings() {
+            Map<UUID, WorldSettings> compiled = new HashMap<>();
+            for (World world : Bukkit.getWorlds()) {
+                compiled.put(world.getUID(), compile(world));
+            }
+            worldSettings = Map.copyOf(compiled);
+            
+            List<String> indexWords = new ArrayList<>(List.of("status", "stop"));
+            for (World world : Bukkit.getWorlds()) {
+                indexWords.add(world.getName());
+            }
+            indexCompletions = new CompletionIndex(indexWords);
+        }
+        
+        /**
+         * Resolves a world's settings from its worlds.&lt;name&gt; section (or the defaults) and the blacklist.
+         */
+        private WorldSettings compile(World world) {
+            WorldSettings template = worldTemplates.getOrDefault(world.getName(), defaultTemplate);
+            return new WorldSettings(world.getEnvironment(), blacklistedWorlds.contains(world.getName()),
+                                     template.searchRadius, template.minRefreshTicks, template.maxRefreshTicks,
+                                     template.farDistance, template.structures, template.biomes);
+        }
+        
+        /**
+         * Gets a world's effective settings.
+         * One lookup in the current snapshot; a world loaded after the last compile
+         * (its WorldLoadEvent not handled yet) is resolved on the spot.
+         * 
+         * @param world The world
+         * @return The world's settings (never null)
+         */
+        WorldSettings getWorldSettings(World world) {
+            WorldSettings settings = worldSettings.get(world.getUID());
+            return settings != null ? settings : compile(world);
+        }
+        
+        /**
+         * Completes the first command argument for the console (no world to filter by).
+         * 
+         * @param prefix What the sender typed so far
+         * @return Matching subcommands and structure types (shared immutable list)
+         */
+        List<String> completeConsoleStructures(String prefix) {
+            return consoleStructureCompletions.complete(prefix);
+        }
+        
+        /**
+         * Completes the second argument of /enhancedcompass index.
+         * 
+         * @param prefix What the sender typed so far
+         * @return Matching world names and status/stop (shared immutable list)
+         */
+        List<String> completeIndexArguments(String prefix) {
+            return indexCompletions.complete(prefix);
+        }
+        
+        /**
+         * Completes a biome name for the console (no world to filter by).
+         * 
+         * @param prefix What the sender typed so far
+         * @return Matching biome types (shared immutable list)
+         */
+        List<String> completeConsoleBiomes(String prefix) {
+            return consoleBiomeCompletions.complete(prefix);
         }
         
         /**
-         * Gets the configured search radius in chunks.
+         * Gets the configured search radius of a world in chunks.
          * This value is used when searching for structures.
          * 
          * <p><b>Usage:</b></p>
@@ -1848,36 +7543,225 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          * To convert to blocks: radius * 16
          * Example: 100 chunks * 16 = 1600 blocks
          * 
+         * @param world The world being searched (worlds.&lt;name&gt;.search-radius overrides the global value)
          * @return Search radius in chunks (not blocks)
          */
-        int getSearchRadius() {
-            return searchRadius;
+        int getSearchRadius(World world) {
+            return getWorldSettings(world).searchRadius;
         }
         
         /**
-         * Checks if a world is blacklisted (plugin disabled).
-         * Used to prevent compass functionality in specific worlds.
+         * Checks whether structure searches should run on the main thread
+         * instead of on worker threads.
          * 
-         * <p><b>Use Cases:</b></p>
-         * <ul>
-         *   <li>Lobby servers where you don't want compasses to work</li>
-         *   <li>Minigame arenas that have custom compass behavior</li>
-         *   <li>Creative worlds where structure finding would be cheating</li>
-         * </ul>
+         * @return true for search.mode "main-thread", false for "async"
+         */
+        boolean isMainThreadSearchMode() {
+            return searchMode.equals("main-thread");
+        }
+        
+        /**
+         * Gets the number of worker threads for async structure searches.
+         * Only used when the plugin starts; changing it requires a restart.
+         * 
+         * @return Worker thread count (at least 1)
+         */
+        int getSearchWorkerThreads() {
+            return searchWorkerThreads;
+        }
+        
+        /**
+         * Gets the per-tick main-thread budget for main-thread structure searches.
+         * Checked between lookups only; one lookup can run past it (see StructureSearchPipeline).
+         * 
+         * @return Budget in milliseconds (at least 1)
+         */
+        long getSearchTickBudgetMs() {
+            return searchTickBudgetMs;
+        }
+        
+        /**
+         * Gets how many lookups of one multi-type search may run at the same time.
+         * 
+         * @return Maximum parallel lookups per search (at least 1)
+         */
+        int getSearchFanOutParallelism() {
+            return searchFanOutParallelism;
+        }
+        
+        /**
+         * Builds the expanding ring schedule for a search out to the given radius.
+         * 
+         * <p><b>Example:</b> schedule 16, 32, 64, 128, 256 with radius 300
+         * gives rings 16, 32, 64, 128, 256, 300.</p>
+         * 
+         * @param searchRadius Maximum search radius in chunks
+         * @return Ascending ring radii in chunks, always ending with searchRadius
+         *         (just {searchRadius} when expanding rings are disabled)
+         */
+        int[] getRingSchedule(int searchRadius) {
+            if (!expandingRingsEnabled) {
+                return new int[] {searchRadius};
+            }
+            
+            // Keep only rings inside the search radius, then close with the radius itself
+            int[] rings = Arrays.stream(ringSchedule).filter(r -> r < searchRadius).toArray();
+            int[] schedule = Arrays.copyOf(rings, rings.length + 1);
+            schedule[rings.length] = searchRadius;
+            return schedule;
+        }
+        
+        /**
+         * Checks whether the persistent structure location index is used.
+         * 
+         * @return true if searches consult and fill the structure index
+         */
+        boolean isStructureIndexEnabled() {
+            return structureIndexEnabled;
+        }
+        
+        /**
+         * Gets how often changed structure index files are saved.
+         * Only used when the plugin starts.
+         * 
+         * @return Save interval in seconds (at least 10)
+         */
+        int getStructureIndexSaveIntervalSeconds() {
+            return structureIndexSaveIntervalSeconds;
+        }
+        
+        /**
+         * Gets the maximum number of scanned areas kept per world and structure type.
+         * 
+         * @return Maximum scanned areas (at least 16)
+         */
+        int getStructureIndexMaxScannedAreas() {
+            return structureIndexMaxScannedAreas;
+        }
+        
+        /**
+         * Checks whether boss bar titles are built on the render worker.
+         * 
+         * @return True for render-mode async, false for main
+         */
+        boolean isBossBarAsyncRender() {
+            return bossBarAsyncRender;
+        }
+        
+        /**
+         * Gets the per-tick limit on boss bar refreshes.
+         * 
+         * @return Maximum refreshes per tick, 0 for no limit
+         */
+        int getBossBarMaxUpdatesPerTick() {
+            return bossBarMaxUpdatesPerTick;
+        }
+        
+        /**
+         * Gets how long a permission snapshot is used.
+         * 
+         * @return Seconds (0 = retake on every check)
+         */
+        int getPermissionCacheSeconds() {
+            return permissionCacheSeconds;
+        }
+        
+        /**
+         * Checks whether config.yml is watched for changes.
+         * Only read on startup; changing it requires a restart.
+         * 
+         * @return true if saving config.yml reloads the configuration
+         */
+        boolean isConfigWatchEnabled() {
+            return configWatchEnabled;
+        }
+        
+        /**
+         * Gets how often every online player is rechecked for holding a compass.
+         * Only read on startup; changing it requires a restart.
+         * 
+         * @return Interval in seconds (at least 1)
+         */
+        int getCompassTrackingResyncSeconds() {
+            return compassTrackingResyncSeconds;
+        }
+        
+        /**
+         * Gets the player target storage backend.
+         * Only read on startup; changing it requires a restart.
+         * 
+         * @return "binary", "mapped", "sqlite" or "yaml"
+         */
+        String getPersistenceStorage() {
+            return persistenceStorage;
+        }
+        
+        /**
+         * Gets how often the player target store is forced to disk.
+         * Only read on startup; changing it requires a restart.
+         * 
+         * @return Interval in seconds (at least 1)
+         */
+        int getPersistenceForceIntervalSeconds() {
+            return persistenceForceIntervalSeconds;
+        }
+        
+        /**
+         * Gets how often queued player data writes are flushed.
+         * Only read on startup; changing it requires a restart.
+         * 
+         * @return Interval in seconds (at least 1)
+         */
+        int getPersistenceFlushIntervalSeconds() {
+            return persistenceFlushIntervalSeconds;
+        }
+        
+        /**
+         * @return true if biome search results are reused for nearby searches
+         */
+        boolean isBiomeCacheEnabled() {
+            return biomeCacheEnabled;
+        }
+        
+        /**
+         * @return Maximum number of cached biome search results (at least 16)
+         */
+        int getBiomeCacheMaxEntries() {
+            return biomeCacheMaxEntries;
+        }
+        
+        /**
+         * Gets how far a reused biome location may be from the true nearest one.
+         * Results are never more accurate than 32 blocks, so values below that change nothing
+         * for found biomes and only affect "not found" reuse.
          * 
-         * <p><b>Configuration:</b></p>
-         * Set in config.yml under blacklisted-worlds list.
-         * World names must match exactly (case-sensitive).
+         * @return Tolerance in blocks (at least 0)
+         */
+        int getBiomeCacheToleranceBlocks() {
+            return biomeCacheToleranceBlocks;
+        }
+        
+        /**
+         * Gets the per-tick main-thread budget for pre-indexing jobs.
+         * 
+         * @return Budget in milliseconds (at least 1)
+         */
+        long getPreIndexTickBudgetMs() {
+            return preIndexTickBudgetMs;
+        }
+        
+        /**
+         * Gets the grid spacing of new pre-indexing jobs.
+         * Resumed jobs keep the spacing they were started with.
          * 
-         * @param worldName The world name to check (e.g., "world", "world_nether")
-         * @return true if world is blacklisted, false otherwise
+         * @return Cell size in chunks (at least 4)
          */
-        boolean isWorldBlacklisted(String worldName) {
-            return blacklistedWorlds.contains(worldName);
+        int getPreIndexCellChunks() {
+            return preIndexCellChunks;
         }
         
         /**
-         * Checks if a structure type is enabled for a specific world environment.
+         * Checks if a structure type is enabled in a specific world.
          * This is the main permission check for structure searches.
          * 
          * <p><b>Usage:</b></p>
@@ -1897,30 +7781,20 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          *   <li>World.Environment.THE_END → "THE_END" section</li>
          * </ul>
          * 
-         * @param environment The world environment (NORMAL, NETHER, THE_END)
-         * @param structureType The structure type in UPPER_CASE format (e.g., "ANCIENT_CITY")
-         * @return true if structure is enabled for this environment, false otherwise
+         * A worlds.&lt;name&gt; section's enabled-structures entries apply on top of the dimension's.
+         * 
+         * @param world The world (its environment picks the section)
+         * @param structureType The structure type in UPPER_CASE or lower_case format (e.g., "ANCIENT_CITY")
+         * @return true if structure is enabled in this world, false otherwise
          */
-        boolean isStructureEnabled(World.Environment environment, String structureType) {
-            // Convert environment enum to string key
-            // NORMAL → "NORMAL", NETHER → "NETHER", THE_END → "THE_END"
-            String envKey = environment.toString();
-            
-            // Get the structures map for this environment
-            Map<String, Boolean> structures = enabledStructures.get(envKey);
-            
-            // Return false if environment section doesn't exist in config
-            if (structures == null) {
-                return false;
-            }
-            
-            // Get enabled status for this structure type
+        boolean isStructureEnabled(World world, String structureType) {
+            // Bit test in the world's compiled BitSet (no allocation)
             // Returns false if structure not present in config (disabled by default)
-            return structures.getOrDefault(structureType, false);
+            return getWorldSettings(world).isStructureEnabled(structureType);
         }
         
         /**
-         * Gets all enabled structure types for a specific world environment.
+         * Gets all enabled structure types for a specific world.
          * Used for tab completion and "anything" searches.
          * 
          * <p><b>Usage:</b></p>
@@ -1940,35 +7814,16 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          *   <li>All structures disabled for this environment</li>
          * </ul>
          * 
-         * @param environment The world environment (NORMAL, NETHER, THE_END)
-         * @return List of enabled structure types in UPPER_CASE format (never null, may be empty)
+         * @param world The world (its environment picks the section)
+         * @return Immutable list of enabled structure types in UPPER_CASE format (never null, may be empty)
          */
-        List<String> getEnabledStructuresForEnvironment(World.Environment environment) {
-            // Convert environment enum to string key
-            String envKey = environment.toString();
-            
-            // Get the structures map for this environment
-            Map<String, Boolean> structures = enabledStructures.get(envKey);
-            
-            // Create result list
-            List<String> result = new ArrayList<>();
-            
-            // Only process if environment section exists
-            if (structures != null) {
-                // Iterate through all structure entries for this environment
-                for (Map.Entry<String, Boolean> entry : structures.entrySet()) {
-                    // Only add structures that are explicitly enabled (value = true)
-                    if (entry.getValue()) {
-                        result.add(entry.getKey());
-                    }
-                }
-            }
-            
-            return result;
+        List<String> getEnabledStructures(World world) {
+            // Shared list compiled at config load
+            return getWorldSettings(world).getEnabledStructures();
         }
         
         /**
-         * Checks if a biome type is enabled for a specific world environment.
+         * Checks if a biome type is enabled in a specific world.
          * This is the main permission check for biome searches.
          * 
          * <p><b>Usage:</b></p>
@@ -1988,73 +7843,16 @@ public class EnhancedCompass extends JavaPlugin implements CommandExecutor, TabC
          *   <li>World.Environment.THE_END → "THE_END" section</li>
          * </ul>
          * 
-         * @param environment The world environment (NORMAL, NETHER, THE_END)
-         * @param biomeType The biome type in UPPER_CASE format (e.g., "DARK_FOREST")
-         * @return true if biome is enabled for this environment, false otherwise
-         */
-        boolean isBiomeEnabled(World.Environment environment, String biomeType) {
-            // Convert environment enum to string key
-            // NORMAL → "NORMAL", NETHER → "NETHER", THE_END → "THE_END"
-            String envKey = environment.toString();
-            
-            // Get the biomes map for this environment
-            Map<String, Boolean> biomes = enabledBiomes.get(envKey);
-            
-            // Return false if environment section doesn't exist in config
-            if (biomes == null) {
-                return false;
-            }
-            
-            // Get enabled status for this biome type
-            // Returns false if biome not present in config (disabled by default)
-            return biomes.getOrDefault(biomeType, false);
-        }
-        
-        /**
-         * Gets all enabled biome types for a specific world environment.
-         * Used for tab completion.
-         * 
-         * <p><b>Usage:</b></p>
-         * <ul>
-         *   <li>Tab completion: Show only available biomes for player's dimension</li>
-         * </ul>
-         * 
-         * <p><b>Return Format:</b></p>
-         * Returns a list of biome type strings in UPPER_CASE format.
-         * Example: ["DARK_FOREST", "CHERRY_GROVE", "MUSHROOM_FIELDS"]
+         * A worlds.&lt;name&gt; section's enabled-biomes entries apply on top of the dimension's.
          * 
-         * <p><b>Empty List:</b></p>
-         * Returns empty list if:
-         * <ul>
-         *   <li>Environment not configured in config</li>
-         *   <li>All biomes disabled for this environment</li>
-         * </ul>
-         * 
-         * @param environment The world environment (NORMAL, NETHER, THE_END)
-         * @return List of enabled biome types in UPPER_CASE format (never null, may be empty)
+         * @param world The world (its environment picks the section)
+         * @param biomeType The biome type in UPPER_CASE or lower_case format (e.g., "DARK_FOREST")
+         * @return true if biome is enabled in this world, false otherwise
          */
-        List<String> getEnabledBiomesForEnvironment(World.Environment environment) {
-            // Convert environment enum to string key
-            String envKey = environment.toString();
-            
-            // Get the biomes map for this environment
-            Map<String, Boolean> biomes = enabledBiomes.get(envKey);
-            
-            // Create result list
-            List<String> result = new ArrayList<>();
-            
-            // Only process if environment section exists
-            if (biomes != null) {
-                // Iterate through all biome entries for this environment
-                for (Map.Entry<String, Boolean> entry : biomes.entrySet()) {
-                    // Only add biomes that are explicitly enabled (value = true)
-                    if (entry.getValue()) {
-                        result.add(entry.getKey());
-                    }
-                }
-            }
-            
-            return result;
+        boolean isBiomeEnabled(World world, String biomeType) {
+            // Bit test in the world's compiled BitSet (no allocation)
+            // Returns false if biome not present in config (disabled by default)
+            return getWorldSettings(world).isBiomeEnabled(biomeType);
         }
     }
 }
\ No newline at end of file